@@ -0,0 +1,37 @@
+package com.heal.io.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCT_CATEGORIES = "productCategories";
+
+    /**
+     * Near-static dimension tables that every product form lists in full. Manufacturers, generics,
+     * dosage forms and medicine types are typeahead fields searched in the database instead.
+     */
+    public static final List<String> DIMENSION_CACHES = List.of(PRODUCT_CATEGORIES);
+
+    /**
+     * Bounded local caches for the dimension lookups. Evictions made inside a transaction are
+     * deferred until it commits, so a concurrent request cannot re-cache the rows being replaced.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${healio.cache.dimensions.spec}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setCacheNames(DIMENSION_CACHES);
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
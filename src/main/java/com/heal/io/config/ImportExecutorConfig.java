@@ -0,0 +1,28 @@
+package com.heal.io.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ImportExecutorConfig {
+
+    /**
+     * Bounded pool for background imports. Jobs beyond the queue capacity are rejected instead
+     * of piling up, and the submitting user's security context is carried over so audit
+     * columns name the uploader rather than "system".
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService importExecutor(ImportProperties importProperties) {
+        int threads = Math.max(importProperties.getMaxConcurrentJobs(), 1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(importProperties.getQueueCapacity(), 1)),
+                Thread.ofVirtual().name("import-", 0).factory());
+        return new DelegatingSecurityContextExecutorService(executor);
+    }
+}
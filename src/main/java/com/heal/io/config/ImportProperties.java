@@ -0,0 +1,39 @@
+package com.heal.io.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "healio.import")
+@Getter
+@Setter
+public class ImportProperties {
+
+    /**
+     * Number of CSV rows written and committed together in one transaction.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Chunks of one import written concurrently. Each writer holds a database connection, so keep
+     * this well below the connection pool size; 1 writes chunks sequentially on the reading thread.
+     */
+    private int parallelism = 4;
+
+    /**
+     * Imports running at the same time on the background import executor.
+     */
+    private int maxConcurrentJobs = 2;
+
+    /**
+     * Imports allowed to wait for a free worker before new uploads are rejected.
+     */
+    private int queueCapacity = 10;
+
+    /**
+     * Server directory that CSV files can be imported from without uploading them. Disabled when empty.
+     */
+    private String directory;
+}
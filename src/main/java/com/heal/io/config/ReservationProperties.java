@@ -0,0 +1,38 @@
+package com.heal.io.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "healio.reservations")
+@Getter
+@Setter
+public class ReservationProperties {
+
+    /**
+     * How long a cart line keeps its stock reserved after it was last changed.
+     */
+    private Duration ttl = Duration.ofMinutes(15);
+
+    /**
+     * Delay between the runs that drop expired reservations and write the reserved quantities to the inventory.
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * How long the sellable stock of a product is served from memory before it is read again.
+     * Stock changes made by this node refresh it immediately; holds taken on other nodes are
+     * seen when it is read again.
+     */
+    private Duration stockCacheTtl = Duration.ofMinutes(1);
+
+    /**
+     * Identifies this node among the application nodes sharing the database; its reservations are
+     * stored under it. Defaults to the host name, so nodes on the same host must each set one.
+     */
+    private String nodeId;
+}
@@ -0,0 +1,23 @@
+package com.heal.io.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+@Configuration
+public class WebConfig {
+
+    /**
+     * ETags for the JSON endpoints the forms call repeatedly. The tag is a hash of the response
+     * body, so an unchanged catalog page is still queried but goes back as an empty 304.
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> jsonEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/products/api/*", "/stock-in/api/*");
+        registration.setName("jsonEtagFilter");
+        return registration;
+    }
+}
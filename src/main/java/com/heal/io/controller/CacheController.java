@@ -0,0 +1,30 @@
+package com.heal.io.controller;
+
+import com.heal.io.service.DimensionCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Controller
+@RequestMapping("/caches")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final DimensionCache dimensionCache;
+
+    @GetMapping("/stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(Map.of("caches", dimensionCache.stats()));
+    }
+
+    @PostMapping("/evict")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> evict() {
+        dimensionCache.evictAll();
+        return ResponseEntity.ok(Map.of("success", true));
+    }
+}
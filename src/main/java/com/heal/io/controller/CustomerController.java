@@ -2,6 +2,8 @@ package com.heal.io.controller;
 
 import com.heal.io.entity.Customer;
 import com.heal.io.repository.CustomerRepository;
+import com.heal.io.service.DocumentNumberGenerator;
+import com.heal.io.service.DocumentType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -17,6 +19,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class CustomerController {
 
     private final CustomerRepository customerRepository;
+    private final DocumentNumberGenerator documentNumberGenerator;
 
     @GetMapping
     public String listCustomers(
@@ -49,7 +52,7 @@ public class CustomerController {
     @PostMapping("/save")
     public String saveCustomer(@ModelAttribute Customer customer, RedirectAttributes redirectAttributes) {
         if (customer.getCustomerCode() == null || customer.getCustomerCode().isEmpty()) {
-            customer.setCustomerCode("CUST-" + System.currentTimeMillis());
+            customer.setCustomerCode(documentNumberGenerator.next(DocumentType.CUSTOMER));
         }
         customerRepository.save(customer);
         redirectAttributes.addFlashAttribute("success", "Customer saved successfully!");
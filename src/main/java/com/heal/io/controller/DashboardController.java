@@ -1,28 +1,38 @@
 package com.heal.io.controller;
 
-import com.heal.io.repository.*;
+import com.heal.io.service.DashboardMetricsService;
+import com.heal.io.service.DashboardStream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Controller
 @RequiredArgsConstructor
 public class DashboardController {
 
-    private final ProductRepository productRepository;
-    private final SaleRepository saleRepository;
-    private final InventoryRepository inventoryRepository;
-    private final CustomerRepository customerRepository;
+    private final DashboardStream dashboardStream;
 
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
-        model.addAttribute("totalProducts", productRepository.countByIsActiveTrue());
-        model.addAttribute("todaySales", saleRepository.getTodayTotalSales() != null ? saleRepository.getTodayTotalSales() : 0.0);
-        model.addAttribute("lowStockCount", inventoryRepository.countLowStockItems());
-        model.addAttribute("totalCustomers", customerRepository.countByIsActiveTrue());
-        model.addAttribute("todaySalesCount", saleRepository.countTodaySales() != null ? saleRepository.countTodaySales() : 0L);
+        DashboardMetricsService.DashboardMetrics metrics = dashboardStream.current();
+        model.addAttribute("totalProducts", metrics.totalProducts());
+        model.addAttribute("todaySales", metrics.todaySales());
+        model.addAttribute("lowStockCount", metrics.lowStockCount());
+        model.addAttribute("totalCustomers", metrics.totalCustomers());
+        model.addAttribute("todaySalesCount", metrics.todaySalesCount());
         return "dashboard";
     }
-}
 
+    /**
+     * Live tile updates for open dashboards.
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter stream() {
+        return dashboardStream.subscribe();
+    }
+}
@@ -0,0 +1,79 @@
+package com.heal.io.controller;
+
+import com.heal.io.entity.BaseEntity;
+import com.heal.io.repository.DosageFormRepository;
+import com.heal.io.repository.GenericRepository;
+import com.heal.io.repository.MedicineTypeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Typeahead endpoints for the product form's generic, dosage form and medicine type fields, which
+ * have too many rows to render as plain select options.
+ */
+@Controller
+@RequiredArgsConstructor
+public class DimensionController {
+
+    private static final int MAX_RESULTS = 50;
+
+    private final GenericRepository genericRepository;
+    private final DosageFormRepository dosageFormRepository;
+    private final MedicineTypeRepository medicineTypeRepository;
+
+    @GetMapping("/generics/api/search")
+    @ResponseBody
+    public ResponseEntity<List<Map<String, Object>>> searchGenerics(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(toResults(genericRepository.searchByName(term(q), limit(limit)),
+                generic -> generic.getName()));
+    }
+
+    @GetMapping("/dosage-forms/api/search")
+    @ResponseBody
+    public ResponseEntity<List<Map<String, Object>>> searchDosageForms(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(toResults(dosageFormRepository.searchByName(term(q), limit(limit)),
+                dosageForm -> dosageForm.getName()));
+    }
+
+    @GetMapping("/medicine-types/api/search")
+    @ResponseBody
+    public ResponseEntity<List<Map<String, Object>>> searchMedicineTypes(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(toResults(medicineTypeRepository.searchByName(term(q), limit(limit)),
+                medicineType -> medicineType.getName()));
+    }
+
+    private static String term(String q) {
+        return q == null ? "" : q.trim();
+    }
+
+    private static Limit limit(int limit) {
+        return Limit.of(Math.clamp(limit, 1, MAX_RESULTS));
+    }
+
+    private static <T extends BaseEntity> List<Map<String, Object>> toResults(List<T> entities, Function<T, String> name) {
+        return entities.stream()
+                .map(entity -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("id", entity.getId());
+                    map.put("text", name.apply(entity));
+                    map.put("name", name.apply(entity));
+                    return map;
+                })
+                .collect(Collectors.toList());
+    }
+}
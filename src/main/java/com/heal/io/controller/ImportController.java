@@ -1,7 +1,18 @@
 package com.heal.io.controller;
 
-import com.heal.io.service.MedicineCsvImportService;
+import com.heal.io.service.ImportJob;
+import com.heal.io.service.ImportJobService;
+import com.heal.io.service.ImportMode;
+import com.heal.io.service.ReferenceDataImportService;
+import com.heal.io.service.ReferenceDataset;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -9,12 +20,21 @@ import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 @Controller
 @RequestMapping("/import")
 @RequiredArgsConstructor
 public class ImportController {
 
-    private final MedicineCsvImportService importService;
+    private final ImportJobService importJobService;
+    private final ReferenceDataImportService referenceDataImportService;
 
     @GetMapping("/medicine")
     public String showImportPage(Model model) {
@@ -24,6 +44,7 @@ public class ImportController {
     @PostMapping("/medicine")
     public String importMedicine(
             @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "FULL") ImportMode mode,
             RedirectAttributes redirectAttributes) {
         
         if (file.isEmpty()) {
@@ -36,36 +57,162 @@ public class ImportController {
             return "redirect:/import/medicine";
         }
         
+        Path upload = null;
         try {
-            MedicineCsvImportService.ImportResult result = importService.importMedicines(file);
-            
-            if (result.isSuccess()) {
-                redirectAttributes.addFlashAttribute("success", 
-                    result.getMessage() + ". " + 
-                    (result.getSkipped().isEmpty() ? "" : 
-                     "Skipped: " + result.getSkipped().size() + " rows"));
-                
-                if (!result.getSkipped().isEmpty() && result.getSkipped().size() <= 10) {
-                    redirectAttributes.addFlashAttribute("skippedDetails", result.getSkipped());
-                }
-            } else {
-                redirectAttributes.addFlashAttribute("error", result.getError());
-            }
-        } catch (MaxUploadSizeExceededException e) {
-            redirectAttributes.addFlashAttribute("error", 
-                "File size exceeds the maximum allowed size (50MB). Please use a smaller file or split the CSV into multiple files.");
+            // The multipart temp file is removed when the request ends, so the job gets its own copy
+            upload = Files.createTempFile("medicine-import-", ".csv");
+            file.transferTo(upload);
+            ImportJob job = importJobService.submit(upload, file.getOriginalFilename(), mode);
+            redirectAttributes.addFlashAttribute("jobId", job.getId());
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
         } catch (Exception e) {
+            deleteQuietly(upload);
             redirectAttributes.addFlashAttribute("error", "Error importing file: " + e.getMessage());
         }
         
         return "redirect:/import/medicine";
     }
     
+    /**
+     * Streaming upload: the raw request body (not multipart) is spooled straight to disk, so
+     * neither the heap nor the multipart size limit constrains the file size.
+     */
+    @PostMapping("/medicine/stream")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> streamMedicine(
+            @RequestParam(defaultValue = "medicine.csv") String fileName,
+            @RequestParam(defaultValue = "FULL") ImportMode mode,
+            HttpServletRequest request) {
+        if (!fileName.endsWith(".csv")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Please upload a CSV file"));
+        }
+        try (InputStream body = request.getInputStream()) {
+            ImportJob job = importJobService.submit(body, fileName, mode);
+            return ResponseEntity.accepted().body(job.toProgress());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Error importing file: " + e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/medicine/server-file")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importServerFile(
+            @RequestParam String path,
+            @RequestParam(defaultValue = "FULL") ImportMode mode) {
+        try {
+            ImportJob job = importJobService.submitServerFile(path, mode);
+            return ResponseEntity.accepted().body(job.toProgress());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Error importing file: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Loads manufacturer, dosage form, drug class and indication CSVs, recognised by their file
+     * names. They are small, so they are imported within the request.
+     */
+    @PostMapping("/reference")
+    public String importReferenceData(
+            @RequestParam("files") List<MultipartFile> files,
+            RedirectAttributes redirectAttributes) {
+        
+        List<String> summaries = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                continue;
+            }
+            Optional<ReferenceDataset> dataset = ReferenceDataset.forFileName(file.getOriginalFilename());
+            if (dataset.isEmpty()) {
+                errors.add(file.getOriginalFilename() + " is not a known reference file");
+                continue;
+            }
+            try (InputStream in = file.getInputStream()) {
+                summaries.add(referenceDataImportService.importDataset(dataset.get(), in).getSummary());
+            } catch (Exception e) {
+                errors.add(file.getOriginalFilename() + ": " + e.getMessage());
+            }
+        }
+        
+        if (!summaries.isEmpty()) {
+            redirectAttributes.addFlashAttribute("success", "Reference data imported");
+            redirectAttributes.addFlashAttribute("referenceResults", summaries);
+        }
+        if (!errors.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", String.join("; ", errors));
+        } else if (summaries.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Please select the reference CSV files to upload");
+        }
+        return "redirect:/import/medicine";
+    }
+    
+    @PostMapping("/reference/server-files")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importReferenceServerFiles() {
+        try {
+            List<String> results = referenceDataImportService.seedFromImportDirectory().stream()
+                    .map(ReferenceDataImportService.ReferenceImportResult::getSummary)
+                    .toList();
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Error importing reference data: " + e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/jobs/{id}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getJobProgress(@PathVariable String id) {
+        return importJobService.getJob(id)
+                .map(job -> ResponseEntity.ok(job.toProgress()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Per-row errors and warnings of a finished import as CSV, streamed from disk.
+     */
+    @GetMapping("/jobs/{id}/report")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String id) {
+        return importJobService.getJob(id)
+                .filter(ImportJob::isFinished)
+                .filter(job -> Files.isRegularFile(job.getReportFile()))
+                .map(job -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                "attachment; filename=\"import-report-" + job.getId() + ".csv\"")
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .<Resource>body(new FileSystemResource(job.getReportFile())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/jobs/{id}/cancel")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String id) {
+        return importJobService.cancel(id)
+                .map(job -> ResponseEntity.ok(job.toProgress()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public String handleMaxSizeException(MaxUploadSizeExceededException ex, RedirectAttributes redirectAttributes) {
         redirectAttributes.addFlashAttribute("error", 
             "File size exceeds the maximum allowed size (50MB). Please use a smaller file or split the CSV into multiple files.");
         return "redirect:/import/medicine";
     }
+    
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception ignored) {
+            // Best effort, the OS temp directory is cleaned up eventually
+        }
+    }
 }
-
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -98,7 +99,8 @@ public class ManufacturerController {
             Page<Manufacturer> page = manufacturerRepository.searchManufacturers(q, pageable);
             manufacturers = page.getContent();
         } else {
-            manufacturers = manufacturerRepository.findByIsActiveTrue();
+            // The first names only; the full list runs into thousands after an import
+            manufacturers = manufacturerRepository.findByIsActiveTrue(PageRequest.of(0, 20, Sort.by("name"))).getContent();
         }
 
         List<Map<String, Object>> results = manufacturers.stream()
@@ -2,6 +2,7 @@ package com.heal.io.controller;
 
 import com.heal.io.entity.*;
 import com.heal.io.repository.*;
+import com.heal.io.service.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -30,6 +31,7 @@ public class ProductController {
     private final GenericRepository genericRepository;
     private final MedicineTypeRepository medicineTypeRepository;
     private final ProductPackageRepository productPackageRepository;
+    private final ProductSearchIndex productSearchIndex;
 
     @GetMapping
     public String listProducts(
@@ -58,11 +60,8 @@ public class ProductController {
     @GetMapping("/new")
     public String showProductForm(Model model) {
         model.addAttribute("product", new Product());
-        model.addAttribute("categories", categoryRepository.findByIsActiveTrue());
-        model.addAttribute("manufacturers", manufacturerRepository.findByIsActiveTrue());
-        model.addAttribute("dosageForms", dosageFormRepository.findAll());
-        model.addAttribute("generics", genericRepository.findAll());
-        model.addAttribute("medicineTypes", medicineTypeRepository.findAll());
+        model.addAttribute("categories", categoryRepository.findOptionsByIsActiveTrueOrderByName());
+        // Manufacturer, dosage form, generic and medicine type are typeahead fields loaded by the page
         model.addAttribute("packages", List.of()); // Empty list for new product
         return "products/form";
     }
@@ -106,7 +105,7 @@ public class ProductController {
             savedProduct = productRepository.save(existing);
             
             // Delete existing packages that are not in the submitted list
-            List<ProductPackage> existingPackages = productPackageRepository.findByProductId(savedProduct.getId());
+            List<ProductPackage> existingPackages = productPackageRepository.findByProductIdAndIsActiveTrue(savedProduct.getId());
             if (packageIds != null) {
                 existingPackages.stream()
                     .filter(pkg -> !packageIds.contains(pkg.getId()))
@@ -178,6 +177,7 @@ public class ProductController {
             }
         }
         
+        productSearchIndex.refresh(savedProduct.getId());
         redirectAttributes.addFlashAttribute("success", "Product saved successfully!");
         return "redirect:/products";
     }
@@ -187,12 +187,9 @@ public class ProductController {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         model.addAttribute("product", product);
-        model.addAttribute("categories", categoryRepository.findByIsActiveTrue());
-        model.addAttribute("manufacturers", manufacturerRepository.findByIsActiveTrue());
-        model.addAttribute("dosageForms", dosageFormRepository.findAll());
-        model.addAttribute("generics", genericRepository.findAll());
-        model.addAttribute("medicineTypes", medicineTypeRepository.findAll());
-        model.addAttribute("packages", productPackageRepository.findByProductId(id));
+        model.addAttribute("categories", categoryRepository.findOptionsByIsActiveTrueOrderByName());
+        // Manufacturer, dosage form, generic and medicine type are typeahead fields loaded by the page
+        model.addAttribute("packages", productPackageRepository.findByProductIdAndIsActiveTrue(id));
         return "products/form";
     }
 
@@ -202,6 +199,7 @@ public class ProductController {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setIsActive(false);
         productRepository.save(product);
+        productSearchIndex.refresh(id);
         redirectAttributes.addFlashAttribute("success", "Product deleted successfully!");
         return "redirect:/products";
     }
@@ -213,18 +211,36 @@ public class ProductController {
             return ResponseEntity.ok(List.of());
         }
         
+        if (productSearchIndex.isReady()) {
+            List<Map<String, Object>> results = productSearchIndex.search(q, 10).stream()
+                    .map(entry -> {
+                        Map<String, Object> result = new HashMap<>();
+                        result.put("id", entry.id());
+                        result.put("name", entry.name());
+                        result.put("category", entry.category() != null ? entry.category() : "");
+                        result.put("manufacturer", entry.manufacturer() != null ? entry.manufacturer() : "");
+                        result.put("generic", entry.generic() != null ? entry.generic() : "");
+                        result.put("dosageForm", entry.dosageForm() != null ? entry.dosageForm() : "");
+                        result.put("strength", entry.strength() != null ? entry.strength() : "");
+                        return result;
+                    })
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(results);
+        }
+        
+        // Index still building after startup
         Pageable pageable = PageRequest.of(0, 10); // Limit to 10 results for dropdown
-        Page<Product> products = productRepository.searchProducts(q.trim(), pageable);
+        List<ProductSummary> products = productRepository.searchProductSummaries(q.trim(), pageable);
         
-        List<Map<String, Object>> results = products.getContent().stream()
+        List<Map<String, Object>> results = products.stream()
                 .map(product -> {
                     Map<String, Object> result = new HashMap<>();
                     result.put("id", product.getId());
                     result.put("name", product.getName());
-                    result.put("category", product.getProductCategory() != null ? product.getProductCategory().getName() : "");
-                    result.put("manufacturer", product.getManufacturer() != null ? product.getManufacturer().getName() : "");
-                    result.put("generic", product.getGeneric() != null ? product.getGeneric().getName() : "");
-                    result.put("dosageForm", product.getDosageForm() != null ? product.getDosageForm().getName() : "");
+                    result.put("category", product.getCategory() != null ? product.getCategory() : "");
+                    result.put("manufacturer", product.getManufacturer() != null ? product.getManufacturer() : "");
+                    result.put("generic", product.getGeneric() != null ? product.getGeneric() : "");
+                    result.put("dosageForm", product.getDosageForm() != null ? product.getDosageForm() : "");
                     result.put("strength", product.getStrength() != null ? product.getStrength() : "");
                     return result;
                 })
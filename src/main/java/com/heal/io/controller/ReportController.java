@@ -0,0 +1,97 @@
+package com.heal.io.controller;
+
+import com.heal.io.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sales reports read from the daily rollups. Ranges default to the current month.
+ */
+@Controller
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private static final int MAX_PRODUCTS = 500;
+
+    private final SalesRollupService salesRollupService;
+
+    @GetMapping("/api/sales")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> sales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") SalesRollupService.Granularity granularity) {
+        LocalDate start = start(from);
+        LocalDate end = end(to);
+        return ok(start, end, salesRollupService.totals(start, end, granularity));
+    }
+
+    @GetMapping("/api/products")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> products(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        LocalDate start = start(from);
+        LocalDate end = end(to);
+        return ok(start, end, salesRollupService.byProduct(start, end, Math.min(Math.max(limit, 1), MAX_PRODUCTS)));
+    }
+
+    @GetMapping("/api/users")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> users(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate start = start(from);
+        LocalDate end = end(to);
+        return ok(start, end, salesRollupService.byUser(start, end));
+    }
+
+    @GetMapping("/api/payment-methods")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> paymentMethods(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate start = start(from);
+        LocalDate end = end(to);
+        return ok(start, end, salesRollupService.byPaymentMethod(start, end));
+    }
+
+    /**
+     * Recomputes the rollups from the sales, for all days with sales unless a range is given.
+     */
+    @PostMapping("/api/rollups/rebuild")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> rebuild(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("days", salesRollupService.rebuild(from, to));
+        return ResponseEntity.ok(response);
+    }
+
+    private static LocalDate start(LocalDate from) {
+        return from != null ? from : LocalDate.now().withDayOfMonth(1);
+    }
+
+    private static LocalDate end(LocalDate to) {
+        return to != null ? to : LocalDate.now();
+    }
+
+    private static ResponseEntity<Map<String, Object>> ok(LocalDate from, LocalDate to, Object items) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("from", from);
+        response.put("to", to);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+}
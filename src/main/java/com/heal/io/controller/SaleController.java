@@ -2,15 +2,22 @@ package com.heal.io.controller;
 
 import com.heal.io.entity.Sale;
 import com.heal.io.repository.SaleRepository;
+import com.heal.io.service.InventoryReservationService;
+import com.heal.io.service.SaleCheckoutService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/sales")
@@ -18,6 +25,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class SaleController {
 
     private final SaleRepository saleRepository;
+    private final SaleCheckoutService saleCheckoutService;
+    private final InventoryReservationService inventoryReservationService;
 
     @GetMapping
     public String listSales(
@@ -38,5 +47,83 @@ public class SaleController {
         model.addAttribute("sale", new Sale());
         return "sales/form";
     }
-}
 
+    /**
+     * Checkout for the POS counters: the sale is either completed with its stock taken, or
+     * rejected with nothing written.
+     */
+    @PostMapping("/api/checkout")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> checkout(@RequestBody SaleCheckoutService.CheckoutRequest request,
+                                                        Authentication authentication) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            Sale sale = saleCheckoutService.checkout(request, authentication.getName());
+            response.put("success", true);
+            response.put("saleId", sale.getId());
+            response.put("saleNumber", sale.getSaleNumber());
+            response.put("totalAmount", sale.getTotalAmount());
+            response.put("paidAmount", sale.getPaidAmount());
+            response.put("changeAmount", sale.getChangeAmount());
+            response.put("paymentStatus", sale.getPaymentStatus());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            // Not enough stock; the client may retry with a smaller quantity
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    /**
+     * Reserves stock for a cart line as it is added or changed; a quantity of 0 removes the line.
+     */
+    @PostMapping("/api/reservations")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> reserve(@RequestBody InventoryReservationService.ReservationRequest request) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            InventoryReservationService.Reservation reservation = inventoryReservationService.reserve(request);
+            response.put("success", true);
+            response.put("cartId", reservation.cartId());
+            response.put("productId", reservation.productId());
+            response.put("quantity", reservation.quantity());
+            response.put("available", reservation.available());
+            response.put("expiresAt", reservation.expiresAt());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    @DeleteMapping("/api/reservations/{cartId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> releaseCart(@PathVariable String cartId) {
+        inventoryReservationService.release(cartId);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Units of the products that can still be sold or reserved, answered from memory.
+     */
+    @GetMapping("/api/availability")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> availability(@RequestParam List<Long> productIds) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        inventoryReservationService.available(productIds)
+                .forEach((productId, available) -> response.put(String.valueOf(productId), available));
+        return ResponseEntity.ok(response);
+    }
+}
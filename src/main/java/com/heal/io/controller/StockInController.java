@@ -2,10 +2,16 @@ package com.heal.io.controller;
 
 import com.heal.io.entity.*;
 import com.heal.io.repository.*;
+import com.heal.io.service.ExpiryService;
+import com.heal.io.service.ReorderService;
+import com.heal.io.service.StockInService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -15,24 +21,28 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/stock-in")
 @RequiredArgsConstructor
+@Slf4j
 public class StockInController {
 
     private final StockInRepository stockInRepository;
     private final SupplierRepository supplierRepository;
-    private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final ProductPackageRepository productPackageRepository;
-    private final InventoryRepository inventoryRepository;
+    private final StockInService stockInService;
+    private final ReorderService reorderService;
+    private final ExpiryService expiryService;
+
+    private static final int MAX_CATALOG_PAGE_SIZE = 200;
 
     @GetMapping
     public String listStockIns(
@@ -58,30 +68,68 @@ public class StockInController {
         return "stock-in/form";
     }
     
+    /**
+     * One page of the active catalog for the stock-in product picker. Pages are keyed on the last
+     * product returned rather than an offset, so later pages cost the same as the first, and
+     * products without a value for a field are sent without that field.
+     */
     @GetMapping("/api/products")
     @ResponseBody
-    public ResponseEntity<List<Map<String, Object>>> getAllProducts() {
-        List<Product> products = productRepository.findByIsActiveTrue(PageRequest.of(0, 1000)).getContent();
-        List<Map<String, Object>> result = products.stream()
+    public ResponseEntity<Map<String, Object>> getProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long manufacturerId,
+            @RequestParam(required = false) Long genericId) {
+        CatalogCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : CatalogCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        int pageSize = Math.clamp(limit, 1, MAX_CATALOG_PAGE_SIZE);
+
+        // One row more than requested tells whether there is a next page without a count query
+        List<ProductSummary> products = productRepository.findCatalogPage(categoryId, manufacturerId, genericId,
+                after != null ? after.name() : null, after != null ? after.id() : null, Limit.of(pageSize + 1));
+        boolean hasMore = products.size() > pageSize;
+        if (hasMore) {
+            products = products.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> items = products.stream()
                 .map(product -> {
-                    Map<String, Object> map = new HashMap<>();
+                    Map<String, Object> map = new LinkedHashMap<>();
                     map.put("id", product.getId());
                     map.put("name", product.getName());
-                    map.put("category", product.getProductCategory() != null ? product.getProductCategory().getName() : "");
-                    map.put("manufacturer", product.getManufacturer() != null ? product.getManufacturer().getName() : "");
-                    map.put("generic", product.getGeneric() != null ? product.getGeneric().getName() : "");
-                    map.put("dosageForm", product.getDosageForm() != null ? product.getDosageForm().getName() : "");
-                    map.put("strength", product.getStrength() != null ? product.getStrength() : "");
+                    putIfPresent(map, "category", product.getCategory());
+                    putIfPresent(map, "manufacturer", product.getManufacturer());
+                    putIfPresent(map, "generic", product.getGeneric());
+                    putIfPresent(map, "dosageForm", product.getDosageForm());
+                    putIfPresent(map, "strength", product.getStrength());
                     return map;
                 })
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(result);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        if (hasMore) {
+            response.put("nextCursor", CatalogCursor.after(products.get(products.size() - 1)).encode());
+        }
+        // Revalidated on every use; the ETag filter answers unchanged pages with 304 Not Modified
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(response);
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            map.put(key, value);
+        }
     }
     
     @GetMapping("/api/product-packages/{productId}")
     @ResponseBody
     public ResponseEntity<List<Map<String, Object>>> getProductPackages(@PathVariable Long productId) {
-        List<ProductPackage> packages = productPackageRepository.findByProductId(productId);
+        List<ProductPackage> packages = productPackageRepository.findByProductIdAndIsActiveTrue(productId);
         List<Map<String, Object>> result = packages.stream()
                 .map(pkg -> {
                     Map<String, Object> map = new HashMap<>();
@@ -98,6 +146,47 @@ public class StockInController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/api/low-stock")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getLowStock() {
+        List<ReorderService.LowStockItem> items = reorderService.lowStock();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", items.size());
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/api/reorder-suggestions")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getReorderSuggestions() {
+        List<ReorderService.PurchaseOrderSuggestion> orders = reorderService.suggestPurchaseOrders();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", orders.size());
+        response.put("orders", orders);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/api/expiry")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getExpirySummary() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("date", LocalDate.now());
+        response.put("buckets", expiryService.summary());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/api/expiry/{bucket}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getExpiringBatches(@PathVariable ExpiryService.ExpiryBucket bucket) {
+        List<ExpiryService.ExpiringBatch> batches = expiryService.batches(bucket);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("bucket", bucket);
+        response.put("days", bucket.getDays());
+        response.put("count", batches.size());
+        response.put("batches", batches);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/save")
     public String saveStockIn(
             @ModelAttribute StockIn stockIn,
@@ -111,157 +200,40 @@ public class StockInController {
             Authentication authentication,
             RedirectAttributes redirectAttributes) {
         
-        try {
-            // Generate stock in number if not provided
-            if (stockIn.getStockInNumber() == null || stockIn.getStockInNumber().isEmpty()) {
-                stockIn.setStockInNumber("STK-" + System.currentTimeMillis());
-            }
-            
-            // Load supplier if provided
-            if (supplierId != null) {
-                stockIn.setSupplier(supplierRepository.findById(supplierId).orElse(null));
-            }
-            
-            // Set current user as inserted by and received by
-            if (authentication != null) {
-                User currentUser = userRepository.findByUsername(authentication.getName())
-                        .orElse(null);
-                stockIn.setInsertedBy(currentUser);
-                stockIn.setReceivedBy(currentUser);
-            }
-            
-            // Calculate totals from items
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            if (productIds != null && !productIds.isEmpty()) {
-                for (int i = 0; i < productIds.size(); i++) {
-                    if (productIds.get(i) != null && quantities != null && i < quantities.size() && 
-                        unitCosts != null && i < unitCosts.size()) {
-                        Integer qty = quantities.get(i);
-                        BigDecimal unitCost = unitCosts.get(i);
-                        if (qty != null && unitCost != null) {
-                            totalAmount = totalAmount.add(unitCost.multiply(BigDecimal.valueOf(qty)));
-                        }
-                    }
+        List<StockInService.Line> lines = new ArrayList<>();
+        if (productIds != null) {
+            for (int i = 0; i < productIds.size(); i++) {
+                Long productId = productIds.get(i);
+                Integer quantity = (quantities != null && i < quantities.size()) ? quantities.get(i) : null;
+                BigDecimal unitCost = (unitCosts != null && i < unitCosts.size()) ? unitCosts.get(i) : null;
+                if (productId == null || quantity == null || quantity <= 0 || unitCost == null) {
+                    continue;
                 }
-            }
-            
-            stockIn.setTotalAmount(totalAmount);
-            
-            // Calculate final amount
-            BigDecimal discount = stockIn.getDiscountAmount() != null ? stockIn.getDiscountAmount() : BigDecimal.ZERO;
-            BigDecimal tax = stockIn.getTaxAmount() != null ? stockIn.getTaxAmount() : BigDecimal.ZERO;
-            stockIn.setFinalAmount(totalAmount.subtract(discount).add(tax));
-            
-            // Save stock in first
-            StockIn savedStockIn = stockInRepository.save(stockIn);
-            
-            // Save stock in items and update inventory
-            if (productIds != null && !productIds.isEmpty()) {
-                for (int i = 0; i < productIds.size(); i++) {
-                    if (productIds.get(i) == null) continue;
-                    
-                    final Long productId = productIds.get(i);
-                    Product product = productRepository.findById(productId)
-                            .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-                    
-                    Integer quantity = (quantities != null && i < quantities.size()) ? quantities.get(i) : 0;
-                    BigDecimal unitCost = (unitCosts != null && i < unitCosts.size()) ? unitCosts.get(i) : BigDecimal.ZERO;
-                    BigDecimal sellingPrice = (sellingPrices != null && i < sellingPrices.size()) ? sellingPrices.get(i) : null;
-                    String expiryDateStr = (expiryDates != null && i < expiryDates.size()) ? expiryDates.get(i) : null;
-                    
-                    if (quantity == null || quantity <= 0 || unitCost == null) {
-                        continue;
-                    }
-                    
-                    LocalDate expiryDate = null;
-                    if (expiryDateStr != null && !expiryDateStr.trim().isEmpty()) {
-                        try {
-                            expiryDate = LocalDate.parse(expiryDateStr);
-                        } catch (Exception e) {
-                            // Invalid date, skip
-                        }
-                    }
-                    
-                    ProductPackage productPackage = null;
-                    if (packageIds != null && i < packageIds.size() && packageIds.get(i) != null) {
-                        productPackage = productPackageRepository.findById(packageIds.get(i)).orElse(null);
+                Long packageId = (packageIds != null && i < packageIds.size()) ? packageIds.get(i) : null;
+                BigDecimal sellingPrice = (sellingPrices != null && i < sellingPrices.size()) ? sellingPrices.get(i) : null;
+                String expiryDateStr = (expiryDates != null && i < expiryDates.size()) ? expiryDates.get(i) : null;
+                
+                LocalDate expiryDate = null;
+                if (expiryDateStr != null && !expiryDateStr.trim().isEmpty()) {
+                    try {
+                        expiryDate = LocalDate.parse(expiryDateStr);
+                    } catch (Exception e) {
+                        // Invalid date, skip
                     }
-                    
-                    BigDecimal totalCost = unitCost.multiply(BigDecimal.valueOf(quantity));
-                    
-                    // Create stock in item
-                    StockInItem item = StockInItem.builder()
-                            .stockIn(savedStockIn)
-                            .product(product)
-                            .productPackage(productPackage)
-                            .quantity(quantity)
-                            .unitCost(unitCost)
-                            .totalCost(totalCost)
-                            .sellingPrice(sellingPrice)
-                            .batchNumber(null)
-                            .expiryDate(expiryDate)
-                            .location(null)
-                            .notes(null)
-                            .build();
-                    
-                    savedStockIn.getItems().add(item);
-                    
-                    // Update inventory
-                    updateInventory(product, productPackage, quantity, unitCost, sellingPrice, null, expiryDate, null);
                 }
+                lines.add(new StockInService.Line(productId, packageId, quantity, unitCost, sellingPrice, expiryDate));
             }
-            
-            stockInRepository.save(savedStockIn);
+        }
+        
+        try {
+            stockInService.receive(stockIn, supplierId, authentication != null ? authentication.getName() : null, lines);
             redirectAttributes.addFlashAttribute("success", "Stock In saved successfully!");
         } catch (Exception e) {
+            log.error("Error saving stock in: {}", e.getMessage(), e);
             redirectAttributes.addFlashAttribute("error", "Error saving stock in: " + e.getMessage());
-            e.printStackTrace();
         }
         
         return "redirect:/stock-in";
     }
-    
-    private void updateInventory(Product product, ProductPackage productPackage, Integer quantity, 
-                                  BigDecimal unitCost, BigDecimal sellingPrice, String batchNumber, 
-                                  LocalDate expiryDate, String location) {
-        // Try to find existing inventory with same product, package, batch, and expiry
-        Optional<Inventory> existingInventory = inventoryRepository.findByProductAndPackageAndBatchAndExpiry(
-                product.getId(),
-                productPackage != null ? productPackage.getId() : null,
-                batchNumber,
-                expiryDate
-        );
-        
-        Inventory inventory;
-        if (existingInventory.isPresent()) {
-            inventory = existingInventory.get();
-            inventory.setQuantity(inventory.getQuantity() + quantity);
-            inventory.setLastRestockedAt(LocalDateTime.now());
-        } else {
-            inventory = Inventory.builder()
-                    .product(product)
-                    .productPackage(productPackage)
-                    .batchNumber(batchNumber)
-                    .expiryDate(expiryDate)
-                    .quantity(quantity)
-                    .reservedQuantity(0)
-                    .availableQuantity(quantity)
-                    .costPrice(unitCost)
-                    .sellingPrice(sellingPrice)
-                    .location(location)
-                    .lastRestockedAt(LocalDateTime.now())
-                    .build();
-        }
-        
-        // Update prices if provided
-        if (unitCost != null) {
-            inventory.setCostPrice(unitCost);
-        }
-        if (sellingPrice != null) {
-            inventory.setSellingPrice(sellingPrice);
-        }
-        
-        inventoryRepository.save(inventory);
-    }
 }
 
@@ -0,0 +1,31 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Entity
+@Table(name = "drug_class")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DrugClass extends BaseEntity {
+
+    // Not unique: the reference data has distinct classes that share a name
+    @Column(nullable = false, length = 200)
+    private String name;
+
+    @Column(unique = true)
+    private String slug;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @ManyToMany(mappedBy = "drugClasses", fetch = FetchType.LAZY)
+    @Builder.Default
+    private Set<Generic> generics = new HashSet<>();
+}
@@ -3,6 +3,9 @@ package com.heal.io.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.util.HashSet;
+import java.util.Set;
+
 @Entity
 @Table(name = "generic")
 @Getter
@@ -20,5 +23,23 @@ public class Generic extends BaseEntity {
 
     @Column(columnDefinition = "TEXT")
     private String description;
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+            name = "generic_drug_class",
+            joinColumns = @JoinColumn(name = "generic_id"),
+            inverseJoinColumns = @JoinColumn(name = "drug_class_id")
+    )
+    @Builder.Default
+    private Set<DrugClass> drugClasses = new HashSet<>();
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+            name = "generic_indication",
+            joinColumns = @JoinColumn(name = "generic_id"),
+            inverseJoinColumns = @JoinColumn(name = "indication_id")
+    )
+    @Builder.Default
+    private Set<Indication> indications = new HashSet<>();
 }
 
@@ -0,0 +1,30 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Entity
+@Table(name = "indication")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Indication extends BaseEntity {
+
+    @Column(nullable = false, unique = true, length = 500)
+    private String name;
+
+    @Column(unique = true)
+    private String slug;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @ManyToMany(mappedBy = "indications", fetch = FetchType.LAZY)
+    @Builder.Default
+    private Set<Generic> generics = new HashSet<>();
+}
@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 @Table(name = "inventory", 
         indexes = {
             @Index(name = "idx_inventory_product", columnList = "product_id"),
+            @Index(name = "idx_inventory_product_expiry", columnList = "product_id, expiry_date"),
             @Index(name = "idx_inventory_expiry", columnList = "expiry_date"),
             @Index(name = "idx_inventory_available", columnList = "available_quantity")
         },
@@ -28,6 +29,11 @@ import java.time.LocalDateTime;
 @Builder
 public class Inventory extends BaseEntity {
 
+    /**
+     * Reorder level of new batches, also used by the JDBC writes that insert inventory rows.
+     */
+    public static final int DEFAULT_REORDER_LEVEL = 10;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -52,7 +58,7 @@ public class Inventory extends BaseEntity {
     private Integer availableQuantity = 0;
 
     @Column(name = "reorder_level")
-    private Integer reorderLevel = 10;
+    private Integer reorderLevel = DEFAULT_REORDER_LEVEL;
 
     @Column(name = "max_stock_level")
     private Integer maxStockLevel;
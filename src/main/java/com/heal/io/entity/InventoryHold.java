@@ -0,0 +1,37 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Units of a product held for open carts by one application node, written by the
+ * InventoryReservationService. The holds of all nodes together make up the reserved quantity of
+ * the product's batches. A node that stops writing loses its holds once they expire.
+ */
+@Entity
+@Table(name = "inventory_hold",
+        indexes = @Index(name = "idx_inventory_hold_product", columnList = "product_id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_inventory_hold", columnNames = {"node_id", "product_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryHold extends BaseEntity {
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // When the last of the node's holds of the product lapses unless its cart is changed
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -10,7 +10,9 @@ import java.util.List;
 @Table(name = "product", indexes = {
         @Index(name = "idx_product_category", columnList = "product_category_id"),
         @Index(name = "idx_product_name", columnList = "name"),
-        @Index(name = "idx_product_manufacturer", columnList = "manufacturer_id")
+        @Index(name = "idx_product_name_id", columnList = "name, id"),
+        @Index(name = "idx_product_manufacturer", columnList = "manufacturer_id"),
+        @Index(name = "idx_product_generic", columnList = "generic_id")
 })
 @Getter
 @Setter
@@ -53,6 +55,9 @@ public class Product extends BaseEntity {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    @Column(name = "import_hash", length = 64)
+    private String importHash;
+
     @Column(name = "requires_prescription", nullable = false)
     @Builder.Default
     private Boolean requiresPrescription = false;
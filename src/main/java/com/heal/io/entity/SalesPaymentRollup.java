@@ -0,0 +1,47 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Completed sales paid with one payment method on one day, kept up to date by the checkout. Every
+ * sale is in exactly one of these rows, so the rows of a day add up to the day's totals.
+ */
+@Entity
+@Table(name = "sales_rollup_payment",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_payment", columnNames = {"sale_day", "payment_method"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesPaymentRollup extends BaseEntity {
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @Column(name = "payment_method", nullable = false, length = 50)
+    private String paymentMethod;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    // Sum of the sale totals
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "discount_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal discountAmount;
+
+    @Column(name = "tax_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal profit;
+}
@@ -0,0 +1,39 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Completed sales of one product on one day, kept up to date by the checkout.
+ */
+@Entity
+@Table(name = "sales_rollup_product",
+        indexes = @Index(name = "idx_sales_rollup_product_product", columnList = "product_id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_product", columnNames = {"sale_day", "product_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesProductRollup extends BaseEntity {
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private Long units;
+
+    // Sum of the line totals, before discounts and tax on the whole sale
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal profit;
+}
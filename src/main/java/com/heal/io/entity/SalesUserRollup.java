@@ -0,0 +1,42 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Completed sales of one cashier on one day, kept up to date by the checkout.
+ */
+@Entity
+@Table(name = "sales_rollup_user",
+        indexes = @Index(name = "idx_sales_rollup_user_user", columnList = "user_id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_user", columnNames = {"sale_day", "user_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesUserRollup extends BaseEntity {
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    // Sum of the sale totals
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal profit;
+}
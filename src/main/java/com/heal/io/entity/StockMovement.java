@@ -0,0 +1,49 @@
+package com.heal.io.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One change to an inventory row's quantity. Rows are only ever appended, so the movements of an
+ * inventory row add up to its quantity and explain how it got there.
+ */
+@Entity
+@Table(name = "stock_movement", indexes = {
+        @Index(name = "idx_stock_movement_inventory", columnList = "inventory_id"),
+        @Index(name = "idx_stock_movement_product", columnList = "product_id"),
+        @Index(name = "idx_stock_movement_reference", columnList = "reference_number")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement extends BaseEntity {
+
+    public enum Type { STOCK_IN, SALE }
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    private Inventory inventory;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, length = 30)
+    private Type movementType;
+
+    // Signed: receipts are positive, issues negative
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "unit_cost", precision = 10, scale = 2)
+    private BigDecimal unitCost;
+
+    // Number of the document that caused the movement, e.g. the stock-in number
+    @Column(name = "reference_number", length = 50)
+    private String referenceNumber;
+}
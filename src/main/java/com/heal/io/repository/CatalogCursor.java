@@ -0,0 +1,43 @@
+package com.heal.io.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the product catalog, ordered by name and id: the last product of the previous page.
+ * Sent to clients as an opaque URL-safe token so the ordering can change without breaking them.
+ */
+public record CatalogCursor(String name, long id) {
+
+    private static final char SEPARATOR = '\u001f';
+
+    public static CatalogCursor after(ProductSummary product) {
+        return new CatalogCursor(product.getName(), product.getId());
+    }
+
+    public String encode() {
+        byte[] bytes = (id + String.valueOf(SEPARATOR) + name).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code token} was not produced by {@link #encode()}
+     */
+    public static CatalogCursor decode(String token) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid catalog cursor", e);
+        }
+        int separator = value.indexOf(SEPARATOR);
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid catalog cursor");
+        }
+        try {
+            return new CatalogCursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid catalog cursor", e);
+        }
+    }
+}
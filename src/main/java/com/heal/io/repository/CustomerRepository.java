@@ -15,10 +15,21 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByPhone(String phone);
     Optional<Customer> findByCustomerCode(String customerCode);
     
-    @Query("SELECT c FROM Customer c WHERE c.isActive = true AND " +
+    String CUSTOMER_SEARCH_FILTER = "FROM customer c WHERE c.is_active = true AND " +
            "(LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "c.phone LIKE CONCAT('%', :search, '%') OR " +
-           "LOWER(c.customerCode) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(c.customer_code) LIKE LOWER(CONCAT('%', :search, '%')))";
+    
+    /**
+     * Ranked search served by the trigram indexes: exact code or phone first, then name prefix,
+     * then by name similarity.
+     */
+    @Query(value = "SELECT c.* " + CUSTOMER_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(c.customer_code) = LOWER(:search) OR c.phone = :search THEN 0 " +
+           "WHEN LOWER(c.name) LIKE LOWER(CONCAT(:search, '%')) THEN 1 ELSE 2 END, " +
+           "similarity(LOWER(c.name), LOWER(:search)) DESC, c.name",
+           countQuery = "SELECT count(*) " + CUSTOMER_SEARCH_FILTER,
+           nativeQuery = true)
     Page<Customer> searchCustomers(@Param("search") String search, Pageable pageable);
     
     Page<Customer> findByIsActiveTrue(Pageable pageable);
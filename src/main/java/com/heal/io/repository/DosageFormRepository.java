@@ -1,13 +1,24 @@
 package com.heal.io.repository;
 
 import com.heal.io.entity.DosageForm;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DosageFormRepository extends JpaRepository<DosageForm, Long> {
     Optional<DosageForm> findByName(String name);
+    
+    /**
+     * Names containing {@code search}, those starting with it first, for typeahead fields.
+     */
+    @Query("SELECT d FROM DosageForm d WHERE LOWER(d.name) LIKE CONCAT('%', LOWER(:search), '%') " +
+           "ORDER BY CASE WHEN LOWER(d.name) LIKE CONCAT(LOWER(:search), '%') THEN 0 ELSE 1 END, d.name")
+    List<DosageForm> searchByName(@Param("search") String search, Limit limit);
 }
 
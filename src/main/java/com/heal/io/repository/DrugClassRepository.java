@@ -0,0 +1,12 @@
+package com.heal.io.repository;
+
+import com.heal.io.entity.DrugClass;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DrugClassRepository extends JpaRepository<DrugClass, Long> {
+    Optional<DrugClass> findBySlug(String slug);
+}
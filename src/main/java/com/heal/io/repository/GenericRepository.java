@@ -1,13 +1,24 @@
 package com.heal.io.repository;
 
 import com.heal.io.entity.Generic;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GenericRepository extends JpaRepository<Generic, Long> {
     Optional<Generic> findByName(String name);
+    
+    /**
+     * Names containing {@code search}, those starting with it first, for typeahead fields.
+     */
+    @Query("SELECT g FROM Generic g WHERE LOWER(g.name) LIKE CONCAT('%', LOWER(:search), '%') " +
+           "ORDER BY CASE WHEN LOWER(g.name) LIKE CONCAT(LOWER(:search), '%') THEN 0 ELSE 1 END, g.name")
+    List<Generic> searchByName(@Param("search") String search, Limit limit);
 }
 
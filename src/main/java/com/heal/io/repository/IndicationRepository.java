@@ -0,0 +1,12 @@
+package com.heal.io.repository;
+
+import com.heal.io.entity.Indication;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IndicationRepository extends JpaRepository<Indication, Long> {
+    Optional<Indication> findBySlug(String slug);
+}
@@ -23,14 +23,5 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
             @Param("packageId") Long packageId,
             @Param("batchNumber") String batchNumber,
             @Param("expiryDate") LocalDate expiryDate);
-    
-    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.availableQuantity <= i.reorderLevel AND i.isActive = true")
-    Long countLowStockItems();
-    
-    @Query("SELECT i FROM Inventory i WHERE i.availableQuantity <= i.reorderLevel AND i.isActive = true")
-    List<Inventory> findLowStockItems();
-    
-    @Query("SELECT i FROM Inventory i WHERE i.expiryDate <= :date AND i.expiryDate IS NOT NULL AND i.quantity > 0 AND i.isActive = true")
-    List<Inventory> findExpiringItems(@Param("date") LocalDate date);
 }
 
@@ -16,10 +16,19 @@ public interface ManufacturerRepository extends JpaRepository<Manufacturer, Long
     Optional<Manufacturer> findByName(String name);
     List<Manufacturer> findByIsActiveTrue();
     
-    @Query("SELECT m FROM Manufacturer m WHERE m.isActive = true AND " +
+    String MANUFACTURER_SEARCH_FILTER = "FROM manufacturer m WHERE m.is_active = true AND " +
            "(LOWER(m.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "m.phone LIKE CONCAT('%', :search, '%') OR " +
-           "LOWER(m.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(m.email) LIKE LOWER(CONCAT('%', :search, '%')))";
+    
+    /**
+     * Ranked search served by the trigram indexes: name prefix first, then by name similarity.
+     */
+    @Query(value = "SELECT m.* " + MANUFACTURER_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(m.name) LIKE LOWER(CONCAT(:search, '%')) THEN 0 ELSE 1 END, " +
+           "similarity(LOWER(m.name), LOWER(:search)) DESC, m.name",
+           countQuery = "SELECT count(*) " + MANUFACTURER_SEARCH_FILTER,
+           nativeQuery = true)
     Page<Manufacturer> searchManufacturers(@Param("search") String search, Pageable pageable);
     
     Page<Manufacturer> findByIsActiveTrue(Pageable pageable);
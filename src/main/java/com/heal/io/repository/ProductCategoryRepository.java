@@ -1,15 +1,33 @@
 package com.heal.io.repository;
 
+import com.heal.io.config.CacheConfig;
 import com.heal.io.entity.ProductCategory;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * The active categories listed by the product form are cached as read-only id and name pairs
+ * rather than entities, so no request gets an instance another one may change. Categories are
+ * only created by the medicine import, which clears the cache through the DimensionCache.
+ */
 @Repository
 public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Long> {
     Optional<ProductCategory> findByName(String name);
     List<ProductCategory> findByIsActiveTrue();
-}
 
+    /**
+     * Id and name of a category, for select options.
+     */
+    interface CategoryOption {
+        Long getId();
+
+        String getName();
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_CATEGORIES, key = "'options'")
+    List<CategoryOption> findOptionsByIsActiveTrueOrderByName();
+}
@@ -9,5 +9,7 @@ import java.util.List;
 @Repository
 public interface ProductPackageRepository extends JpaRepository<ProductPackage, Long> {
     List<ProductPackage> findByProductId(Long productId);
+
+    List<ProductPackage> findByProductIdAndIsActiveTrue(Long productId);
 }
 
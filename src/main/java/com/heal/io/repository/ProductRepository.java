@@ -1,29 +1,103 @@
 package com.heal.io.repository;
 
 import com.heal.io.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByBrandId(Long brandId);
     Optional<Product> findBySlug(String slug);
+    @EntityGraph(attributePaths = {"productCategory", "manufacturer", "generic"})
     Page<Product> findByIsActiveTrue(Pageable pageable);
+    
+    /**
+     * One page of the active catalog in name order, starting after the product at {@code afterName}
+     * and {@code afterId} (both null for the first page). Null filters match every product.
+     */
+    @Query("SELECT p.id AS id, p.name AS name, c.name AS category, m.name AS manufacturer, " +
+           "g.name AS generic, d.name AS dosageForm, p.strength AS strength FROM Product p " +
+           "LEFT JOIN p.productCategory c LEFT JOIN p.manufacturer m LEFT JOIN p.generic g " +
+           "LEFT JOIN p.dosageForm d WHERE p.isActive = true " +
+           "AND (:categoryId IS NULL OR c.id = :categoryId) " +
+           "AND (:manufacturerId IS NULL OR m.id = :manufacturerId) " +
+           "AND (:genericId IS NULL OR g.id = :genericId) " +
+           "AND (:afterName IS NULL OR p.name > :afterName OR (p.name = :afterName AND p.id > :afterId)) " +
+           "ORDER BY p.name, p.id")
+    List<ProductSummary> findCatalogPage(@Param("categoryId") Long categoryId,
+                                         @Param("manufacturerId") Long manufacturerId,
+                                         @Param("genericId") Long genericId,
+                                         @Param("afterName") String afterName,
+                                         @Param("afterId") Long afterId,
+                                         Limit limit);
     Page<Product> findByProductCategoryIdAndIsActiveTrue(Long categoryId, Pageable pageable);
     Page<Product> findByNameContainingIgnoreCaseAndIsActiveTrue(String name, Pageable pageable);
     
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.manufacturer.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.generic.name) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Product> searchProducts(@Param("search") String search, Pageable pageable);
+    /**
+     * Products matching by brand, manufacturer or generic name. Each branch of the union can use the
+     * trigram index of its name column, which a single OR across the joined tables could not.
+     */
+    String PRODUCT_SEARCH_FILTER = "FROM product p WHERE p.is_active = true AND p.id IN (" +
+           "SELECT id FROM product WHERE LOWER(name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+           "UNION SELECT pm.id FROM product pm JOIN manufacturer m ON m.id = pm.manufacturer_id " +
+           "WHERE LOWER(m.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+           "UNION SELECT pg.id FROM product pg JOIN generic g ON g.id = pg.generic_id " +
+           "WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :search, '%')))";
+    
+    /**
+     * Ranked search: exact brand name, then brand name prefix, then brand name substring, then
+     * manufacturer or generic matches, each ordered by trigram similarity to the brand name. The
+     * page is read as ids by the native query and its products loaded with their relations by
+     * {@link #findWithRelationsByIdIn}, so listing it runs three statements however many rows it has.
+     */
+    default Page<Product> searchProducts(String search, Pageable pageable) {
+        Page<Long> ids = searchProductIds(search, pageable);
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : findWithRelationsByIdIn(ids.getContent())) {
+            products.put(product.getId(), product);
+        }
+        return ids.map(products::get);
+    }
+
+    @Query(value = "SELECT p.id " + PRODUCT_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(p.name) = LOWER(:search) THEN 0 " +
+           "WHEN LOWER(p.name) LIKE LOWER(CONCAT(:search, '%')) THEN 1 " +
+           "WHEN LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) THEN 2 ELSE 3 END, " +
+           "similarity(LOWER(p.name), LOWER(:search)) DESC, p.name",
+           countQuery = "SELECT count(*) " + PRODUCT_SEARCH_FILTER,
+           nativeQuery = true)
+    Page<Long> searchProductIds(@Param("search") String search, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"productCategory", "manufacturer", "generic"})
+    List<Product> findWithRelationsByIdIn(Collection<Long> ids);
+    
+    /**
+     * {@link #searchProducts} as summaries, for the typeahead endpoint.
+     */
+    @Query(value = "SELECT p.id AS id, p.name AS name, " +
+           "(SELECT c.name FROM product_category c WHERE c.id = p.product_category_id) AS category, " +
+           "(SELECT m.name FROM manufacturer m WHERE m.id = p.manufacturer_id) AS manufacturer, " +
+           "(SELECT g.name FROM generic g WHERE g.id = p.generic_id) AS generic, " +
+           "(SELECT d.name FROM dosage_form d WHERE d.id = p.dosage_form_id) AS dosageForm, " +
+           "p.strength AS strength " + PRODUCT_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(p.name) = LOWER(:search) THEN 0 " +
+           "WHEN LOWER(p.name) LIKE LOWER(CONCAT(:search, '%')) THEN 1 " +
+           "WHEN LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) THEN 2 ELSE 3 END, " +
+           "similarity(LOWER(p.name), LOWER(:search)) DESC, p.name",
+           nativeQuery = true)
+    List<ProductSummary> searchProductSummaries(@Param("search") String search, Pageable pageable);
     
     long countByIsActiveTrue();
 }
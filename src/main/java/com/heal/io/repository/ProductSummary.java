@@ -0,0 +1,22 @@
+package com.heal.io.repository;
+
+/**
+ * Read-only view of a product with the names of its category, manufacturer, generic and dosage
+ * form, loaded in the same statement as the product for dropdowns and JSON endpoints.
+ */
+public interface ProductSummary {
+
+    Long getId();
+
+    String getName();
+
+    String getCategory();
+
+    String getManufacturer();
+
+    String getGeneric();
+
+    String getDosageForm();
+
+    String getStrength();
+}
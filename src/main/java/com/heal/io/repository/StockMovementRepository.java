@@ -0,0 +1,17 @@
+package com.heal.io.repository;
+
+import com.heal.io.entity.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+    List<StockMovement> findByInventoryIdOrderByIdAsc(Long inventoryId);
+    
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM StockMovement m WHERE m.inventory.id = :inventoryId")
+    long sumQuantityByInventoryId(@Param("inventoryId") Long inventoryId);
+}
@@ -3,6 +3,7 @@ package com.heal.io.repository;
 import com.heal.io.entity.Supplier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,12 +15,22 @@ import java.util.Optional;
 @Repository
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     Optional<Supplier> findByName(String name);
+    @EntityGraph(attributePaths = "manufacturers")
     List<Supplier> findByIsActiveTrue();
     
-    @Query("SELECT s FROM Supplier s WHERE s.isActive = true AND " +
+    String SUPPLIER_SEARCH_FILTER = "FROM supplier s WHERE s.is_active = true AND " +
            "(LOWER(s.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "s.phone LIKE CONCAT('%', :search, '%') OR " +
-           "LOWER(s.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(s.email) LIKE LOWER(CONCAT('%', :search, '%')))";
+    
+    /**
+     * Ranked search served by the trigram indexes: name prefix first, then by name similarity.
+     */
+    @Query(value = "SELECT s.* " + SUPPLIER_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(s.name) LIKE LOWER(CONCAT(:search, '%')) THEN 0 ELSE 1 END, " +
+           "similarity(LOWER(s.name), LOWER(:search)) DESC, s.name",
+           countQuery = "SELECT count(*) " + SUPPLIER_SEARCH_FILTER,
+           nativeQuery = true)
     Page<Supplier> searchSuppliers(@Param("search") String search, Pageable pageable);
 }
 
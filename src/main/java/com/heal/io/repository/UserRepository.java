@@ -13,14 +13,29 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     
-    @Query("SELECT u FROM User u WHERE u.isActive = true AND " +
+    String USER_SEARCH_FILTER = "FROM users u WHERE u.is_active = true AND " +
            "(LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))";
+    
+    /**
+     * Ranked search served by the trigram indexes: exact username first, then name or username
+     * prefix, then by name similarity.
+     */
+    @Query(value = "SELECT u.* " + USER_SEARCH_FILTER + " ORDER BY " +
+           "CASE WHEN LOWER(u.username) = LOWER(:search) THEN 0 " +
+           "WHEN LOWER(u.name) LIKE LOWER(CONCAT(:search, '%')) " +
+           "OR LOWER(u.username) LIKE LOWER(CONCAT(:search, '%')) THEN 1 ELSE 2 END, " +
+           "similarity(LOWER(u.name), LOWER(:search)) DESC, u.name",
+           countQuery = "SELECT count(*) " + USER_SEARCH_FILTER,
+           nativeQuery = true)
     Page<User> searchUsers(@Param("search") String search, Pageable pageable);
     
     Page<User> findByIsActiveTrue(Pageable pageable);
@@ -0,0 +1,202 @@
+package com.heal.io.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 CSV tokenizer that reuses its buffers across records.
+ * <p>
+ * Input is read in large blocks into a char buffer and the content of the current record is
+ * copied into a second reusable buffer with per-field offsets, so advancing to the next record
+ * allocates nothing. Strings are only created for the fields a caller actually asks for.
+ * Quoted fields may contain separators, line breaks and escaped quotes ({@code ""}).
+ * <p>
+ * Not thread-safe; one instance reads one stream.
+ */
+public class CsvTokenizer implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] input;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private char[] record = new char[1024];
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    private int lineNumber = 1;
+    private int recordLineNumber;
+
+    public CsvTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvTokenizer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.input = new char[bufferSize];
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false when the end of the input has been reached
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        recordLineNumber = lineNumber;
+
+        if (position >= limit && !fill()) {
+            return false;
+        }
+
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean quoteSeen = false; // a quote inside a quoted field, either closing or escaping
+
+        while (true) {
+            if (position >= limit && !fill()) {
+                endField(fieldStart);
+                return true;
+            }
+            char c = input[position++];
+
+            if (quoted) {
+                if (quoteSeen) {
+                    quoteSeen = false;
+                    if (c == '"') {
+                        append('"');
+                        continue;
+                    }
+                    quoted = false;
+                    // fall through: the character after a closing quote is handled as unquoted
+                } else if (c == '"') {
+                    quoteSeen = true;
+                    continue;
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    append(c);
+                    continue;
+                }
+            }
+
+            if (c == ',') {
+                endField(fieldStart);
+                fieldStart = recordLength;
+            } else if (c == '\n') {
+                lineNumber++;
+                endField(fieldStart);
+                return true;
+            } else if (c == '\r') {
+                lineNumber++;
+                if ((position < limit || fill()) && input[position] == '\n') {
+                    position++;
+                }
+                endField(fieldStart);
+                return true;
+            } else if (c == '"' && recordLength == fieldStart) {
+                quoted = true;
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Physical line (1-based) on which the current record starts.
+     */
+    public int getLineNumber() {
+        return recordLineNumber;
+    }
+
+    public String field(int index) {
+        int start = fieldStarts[checkIndex(index)];
+        return new String(record, start, fieldEnds[index] - start);
+    }
+
+    /**
+     * Same as {@code field(index).trim()} without creating the untrimmed string first.
+     */
+    public String trimmedField(int index) {
+        int start = fieldStarts[checkIndex(index)];
+        int end = fieldEnds[index];
+        while (start < end && record[start] <= ' ') {
+            start++;
+        }
+        while (end > start && record[end - 1] <= ' ') {
+            end--;
+        }
+        return start == end ? "" : new String(record, start, end - start);
+    }
+
+    /**
+     * The current record as a string array, for callers that need all fields.
+     */
+    public String[] fields() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = field(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int read;
+        do {
+            read = reader.read(input, 0, input.length);
+        } while (read == 0);
+        if (read < 0) {
+            eof = true;
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+        return index;
+    }
+}
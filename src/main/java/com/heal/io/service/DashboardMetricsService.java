@@ -0,0 +1,50 @@
+package com.heal.io.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * The figures shown on the dashboard tiles, read in one query. Today's sales are selected with a
+ * range on {@code sale_date} rather than {@code DATE(sale_date) = CURRENT_DATE}, so the lookup is
+ * an {@code idx_sale_date} range scan instead of a scan of the whole sale table. Low stock is
+ * counted per product and package by the {@link ReorderService}.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardMetricsService {
+
+    // Public for DashboardQueryBenchmark, which runs it as is
+    public static final String METRICS_SQL =
+            ReorderService.LOW_STOCK_CTE +
+            "SELECT (SELECT count(*) FROM product WHERE is_active = true), " +
+            "today.total, today.sales, " +
+            "(SELECT count(*) FROM low), " +
+            "(SELECT count(*) FROM customer WHERE is_active = true) " +
+            "FROM (SELECT COALESCE(SUM(total_amount), 0) AS total, count(*) AS sales FROM sale " +
+            "WHERE sale_date >= ? AND sale_date < ? AND sale_status = 'COMPLETED') today";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReorderService reorderService;
+
+    public record DashboardMetrics(long totalProducts, BigDecimal todaySales, long todaySalesCount,
+                                   long lowStockCount, long totalCustomers) {
+    }
+
+    /**
+     * The tiles for {@code day}, a date in the application's time zone that sale dates are written in.
+     */
+    public DashboardMetrics compute(LocalDate day) {
+        return jdbcTemplate.queryForObject(METRICS_SQL, (rs, rowNum) -> new DashboardMetrics(
+                        rs.getLong(1), rs.getBigDecimal(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+                Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+
+    public long countLowStock() {
+        return reorderService.countLowStock();
+    }
+}
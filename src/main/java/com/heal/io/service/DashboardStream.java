@@ -0,0 +1,286 @@
+package com.heal.io.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The dashboard tiles held in memory and pushed to every open dashboard over Server-Sent Events.
+ * Completed sales are added to the totals as they are committed; stock changes only mark the
+ * low-stock count for a recount on the next refresh, which coalesces the changes of busy periods
+ * into one query. A full recomputation reconciles everything periodically and when the day changes.
+ * <p>
+ * However many dashboards are open, the database sees one aggregation per change, and each
+ * dashboard receives only the tiles that changed. Every dashboard is sent to on a thread of its
+ * own, and one that falls too far behind is dropped, so a stalled browser delays nobody else.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardStream {
+
+    private static final long EMITTER_TIMEOUT = Duration.ofMinutes(30).toMillis();
+
+    // Events a dashboard may have waiting before it is dropped as stalled
+    private static final int MAX_PENDING_EVENTS = 64;
+
+    private final DashboardMetricsService dashboardMetricsService;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean inventoryChanged = new AtomicBoolean();
+    private final AtomicBoolean stale = new AtomicBoolean();
+    // The generation of the latest recomputation, raised before it queries: a snapshot of an older
+    // generation is about to be replaced by one that may or may not include a change made meanwhile
+    private final AtomicLong generations = new AtomicLong();
+
+    /**
+     * The tiles of one day. The generation changes with every recomputation, so a change that was
+     * based on the previous computation can tell that it may already be included.
+     */
+    private record Snapshot(LocalDate day, long generation, DashboardMetricsService.DashboardMetrics metrics) {
+
+        Snapshot with(DashboardMetricsService.DashboardMetrics changed) {
+            return new Snapshot(day, generation, changed);
+        }
+    }
+
+    /**
+     * The current tiles, computed only if there are none for today yet.
+     */
+    public DashboardMetricsService.DashboardMetrics current() {
+        Snapshot current = snapshot.get();
+        if (current == null || !current.day().equals(LocalDate.now())) {
+            current = recompute();
+        }
+        return current.metrics();
+    }
+
+    /**
+     * A stream that starts with all tiles as a {@code metrics} event and then sends the tiles that
+     * changed as {@code delta} events.
+     */
+    public SseEmitter subscribe() {
+        Subscriber subscriber = new Subscriber();
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriber.remove());
+        subscribers.add(subscriber);
+        subscriber.send(SseEmitter.event().name("metrics").data(changes(null, current())));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onSaleCompleted(SaleCompletedEvent event) {
+        Snapshot first = snapshot.get();
+        if (first == null) {
+            // Nothing computed yet, or a first computation is running that may miss the sale
+            stale.set(true);
+            return;
+        }
+        if (!first.day().equals(event.saleDate().toLocalDate())) {
+            stale.set(true);
+            return;
+        }
+        Snapshot previous;
+        Snapshot next;
+        do {
+            previous = snapshot.get();
+            if (previous == null || previous.generation() != first.generation()
+                    || previous.generation() != generations.get()) {
+                // Recomputed meanwhile or being recomputed, possibly without the sale: count it by
+                // recomputing again. A recomputation that starts after this check sees the sale.
+                stale.set(true);
+                return;
+            }
+            DashboardMetricsService.DashboardMetrics metrics = previous.metrics();
+            next = previous.with(new DashboardMetricsService.DashboardMetrics(metrics.totalProducts(),
+                    metrics.todaySales().add(event.totalAmount()), metrics.todaySalesCount() + 1,
+                    metrics.lowStockCount(), metrics.totalCustomers()));
+        } while (!snapshot.compareAndSet(previous, next));
+        broadcast(changes(previous.metrics(), next.metrics()));
+    }
+
+    @TransactionalEventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        inventoryChanged.set(true);
+    }
+
+    /**
+     * Applies the changes that were only marked: a new low-stock count, or a full recomputation
+     * after the day changed or a sale raced with the previous one.
+     */
+    @Scheduled(fixedDelayString = "${healio.dashboard.refresh-interval:PT2S}")
+    public void refresh() {
+        Snapshot first = snapshot.get();
+        if (first == null) {
+            return;
+        }
+        if (stale.get() || !first.day().equals(LocalDate.now())) {
+            recompute();
+        } else if (inventoryChanged.getAndSet(false)) {
+            long lowStockCount = dashboardMetricsService.countLowStock();
+            Snapshot previous;
+            Snapshot next;
+            do {
+                previous = snapshot.get();
+                if (previous == null || previous.generation() != first.generation()) {
+                    return; // Recomputed meanwhile, with a count at least as recent
+                }
+                DashboardMetricsService.DashboardMetrics metrics = previous.metrics();
+                next = previous.with(new DashboardMetricsService.DashboardMetrics(metrics.totalProducts(),
+                        metrics.todaySales(), metrics.todaySalesCount(), lowStockCount, metrics.totalCustomers()));
+            } while (!snapshot.compareAndSet(previous, next));
+            broadcast(changes(previous.metrics(), next.metrics()));
+        }
+    }
+
+    /**
+     * Recomputes all tiles, which also picks up the product and customer counts that no event
+     * reports, and keeps idle streams from being closed by proxies.
+     */
+    @Scheduled(fixedDelayString = "${healio.dashboard.reconcile-interval:PT1M}")
+    public void reconcile() {
+        if (subscribers.isEmpty()) {
+            // Nobody is watching; the next page view recomputes
+            snapshot.set(null);
+            return;
+        }
+        Snapshot previous = snapshot.get();
+        Snapshot next = recompute();
+        if (previous != null && changes(previous.metrics(), next.metrics()).isEmpty()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.send(SseEmitter.event().comment("keep-alive"));
+            }
+        }
+    }
+
+    private synchronized Snapshot recompute() {
+        stale.set(false);
+        inventoryChanged.set(false);
+        // Raised before the query, so sales committed while it runs are not added to the old snapshot
+        long generation = generations.incrementAndGet();
+        LocalDate day = LocalDate.now();
+        DashboardMetricsService.DashboardMetrics metrics;
+        try {
+            metrics = dashboardMetricsService.compute(day);
+        } catch (RuntimeException e) {
+            stale.set(true);
+            throw e;
+        }
+        Snapshot next = new Snapshot(day, generation, metrics);
+        Snapshot previous = snapshot.getAndSet(next);
+        broadcast(changes(previous != null && previous.day().equals(day) ? previous.metrics() : null, next.metrics()));
+        return next;
+    }
+
+    /**
+     * The tiles of {@code next} that differ from {@code previous}, all of them when there is no previous.
+     */
+    static Map<String, Object> changes(DashboardMetricsService.DashboardMetrics previous,
+                                       DashboardMetricsService.DashboardMetrics next) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (previous == null || previous.totalProducts() != next.totalProducts()) {
+            changes.put("totalProducts", next.totalProducts());
+        }
+        if (previous == null || !sameAmount(previous.todaySales(), next.todaySales())) {
+            changes.put("todaySales", next.todaySales());
+        }
+        if (previous == null || previous.todaySalesCount() != next.todaySalesCount()) {
+            changes.put("todaySalesCount", next.todaySalesCount());
+        }
+        if (previous == null || previous.lowStockCount() != next.lowStockCount()) {
+            changes.put("lowStockCount", next.lowStockCount());
+        }
+        if (previous == null || previous.totalCustomers() != next.totalCustomers()) {
+            changes.put("totalCustomers", next.totalCustomers());
+        }
+        return changes;
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return Objects.equals(a, b) || (a != null && b != null && a.compareTo(b) == 0);
+    }
+
+    private void broadcast(Map<String, Object> changes) {
+        if (changes.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.send(SseEmitter.event().name("delta").data(changes));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.sender.shutdownNow();
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * One open dashboard. Its events are sent in order on a thread of its own, so a browser that
+     * stops reading only blocks its own sends, and it is dropped once too many events wait.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT);
+        private final ExecutorService sender = Executors.newSingleThreadExecutor(
+                Thread.ofVirtual().name("dashboard-stream").factory());
+        private final AtomicInteger pending = new AtomicInteger();
+
+        void send(SseEmitter.SseEventBuilder event) {
+            if (pending.incrementAndGet() > MAX_PENDING_EVENTS) {
+                log.debug("Dropped dashboard stream with {} unsent events", MAX_PENDING_EVENTS);
+                remove();
+                // Completing waits for the stalled send, so it must not hold up the caller
+                Thread.ofVirtual().name("dashboard-stream-close").start(emitter::complete);
+                return;
+            }
+            try {
+                sender.execute(() -> {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // The browser went away; the servlet container reports it through onError as well
+                        remove();
+                        log.debug("Dropped dashboard stream: {}", e.getMessage());
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Removed already
+            }
+        }
+
+        void remove() {
+            if (subscribers.remove(this)) {
+                sender.shutdownNow();
+            }
+        }
+    }
+}
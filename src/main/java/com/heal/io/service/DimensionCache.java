@@ -0,0 +1,53 @@
+package com.heal.io.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.heal.io.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Access to the dimension caches outside the repository annotations: clearing them after imports,
+ * which write the dimension tables with plain JDBC, and reading their statistics.
+ */
+@Component
+@RequiredArgsConstructor
+public class DimensionCache {
+
+    private final CacheManager cacheManager;
+
+    public void evictAll() {
+        for (String name : CacheConfig.DIMENSION_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Entry count, hits, misses and evictions per cache since startup.
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (String name : CacheConfig.DIMENSION_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine)) {
+                continue;
+            }
+            CacheStats cacheStats = caffeine.stats();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", caffeine.estimatedSize());
+            entry.put("hits", cacheStats.hitCount());
+            entry.put("misses", cacheStats.missCount());
+            entry.put("hitRate", cacheStats.hitRate());
+            entry.put("evictions", cacheStats.evictionCount());
+            stats.put(name, entry);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,96 @@
+package com.heal.io.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+/**
+ * Unique, readable document numbers such as {@code SAL-261017-000123}: a prefix, the day and a
+ * value from a PostgreSQL sequence. The sequences step by {@link #BLOCK_SIZE}, so one
+ * {@code nextval} reserves a block of values that this node then hands out from memory with an
+ * atomic increment. Several nodes never share a block, and values of blocks that were not used
+ * up before a restart are skipped: numbers are unique and increasing per node, but have gaps.
+ */
+@Component
+public class DocumentNumberGenerator {
+
+    /**
+     * Values reserved per sequence call. Must equal the INCREMENT BY of the sequences in db/postgres-schema.sql.
+     */
+    static final int BLOCK_SIZE = 50;
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyMMdd");
+
+    private final ToLongFunction<DocumentType> blockSource;
+    private final Clock clock;
+    private final Map<DocumentType, AtomicReference<Block>> blocks = new EnumMap<>(DocumentType.class);
+
+    @Autowired
+    public DocumentNumberGenerator(JdbcTemplate jdbcTemplate) {
+        this(type -> {
+            Long start = jdbcTemplate.queryForObject("SELECT nextval('" + type.getSequence() + "')", Long.class);
+            if (start == null) {
+                throw new IllegalStateException("Sequence " + type.getSequence() + " returned no value");
+            }
+            return start;
+        }, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param blockSource returns the first value of a fresh block of {@link #BLOCK_SIZE} values
+     */
+    DocumentNumberGenerator(ToLongFunction<DocumentType> blockSource, Clock clock) {
+        this.blockSource = blockSource;
+        this.clock = clock;
+        for (DocumentType type : DocumentType.values()) {
+            blocks.put(type, new AtomicReference<>());
+        }
+    }
+
+    public String next(DocumentType type) {
+        return String.format("%s-%s-%06d", type.getPrefix(), LocalDate.now(clock).format(DAY), nextValue(type));
+    }
+
+    /**
+     * The next unused value of {@code type}'s sequence. Threads only synchronize when a block is
+     * used up and the next one has to be fetched.
+     */
+    long nextValue(DocumentType type) {
+        AtomicReference<Block> current = blocks.get(type);
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            synchronized (current) {
+                // Another thread may have fetched a block while this one was waiting
+                if (current.get() == block) {
+                    long start = blockSource.applyAsLong(type);
+                    current.set(new Block(start, start + BLOCK_SIZE));
+                }
+            }
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
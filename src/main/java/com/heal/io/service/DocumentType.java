@@ -0,0 +1,18 @@
+package com.heal.io.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Documents numbered by the {@link DocumentNumberGenerator}, each with its own PostgreSQL sequence.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum DocumentType {
+    SALE("SAL", "sale_number_seq"),
+    STOCK_IN("STK", "stock_in_number_seq"),
+    CUSTOMER("CUST", "customer_code_seq");
+
+    private final String prefix;
+    private final String sequence;
+}
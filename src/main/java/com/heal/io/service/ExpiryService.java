@@ -0,0 +1,211 @@
+package com.heal.io.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stocked batches that have expired or expire within 90 days, sorted into buckets and held in
+ * memory. A scheduled run quarantines the batches that expired, by deactivating them, which takes
+ * them out of sales, reservations and the low-stock figures while their units stay on record to be
+ * written off. The buckets are rebuilt when the day changes and after stock changes.
+ * <p>
+ * Both the quarantine and the rebuild are range scans of {@code idx_inventory_expiry_stocked}, a
+ * partial index of the batches that still hold units, so sold-out batches are never read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiryService {
+
+    private static final String QUARANTINE_SQL =
+            "UPDATE inventory SET is_active = false, updated_at = ?, last_modified_by = ? " +
+            "WHERE quantity > 0 AND expiry_date < ? AND is_active = true RETURNING product_id";
+
+    // Expired batches are listed whether quarantined yet or not; others only while active
+    private static final String SELECT_EXPIRING_SQL =
+            "SELECT i.id, i.product_id, p.name, pp.package_description, i.batch_number, i.expiry_date, " +
+            "i.quantity, i.cost_price, i.location FROM inventory i JOIN product p ON p.id = i.product_id " +
+            "LEFT JOIN product_package pp ON pp.id = i.product_package_id " +
+            "WHERE i.quantity > 0 AND i.expiry_date < ? AND (i.is_active = true OR i.expiry_date < ?) " +
+            "ORDER BY i.expiry_date, p.name, i.id";
+
+    private static final RowMapper<ExpiringBatch> EXPIRING_BATCH = (rs, rowNum) -> new ExpiringBatch(
+            rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+            rs.getObject(6, LocalDate.class), rs.getInt(7), rs.getBigDecimal(8), rs.getString(9));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditorAware<String> auditorProvider;
+    private final InventoryReservationService inventoryReservationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    /**
+     * How close to expiry a batch is. Each batch is in the first bucket it fits.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum ExpiryBucket {
+        EXPIRED(-1),
+        TODAY(0),
+        WEEK(7),
+        MONTH(30),
+        QUARTER(90);
+
+        /**
+         * The last day of the bucket, in days from today.
+         */
+        private final int days;
+
+        /**
+         * The bucket of a batch expiring on {@code expiryDate}, {@code null} if it expires later
+         * than the last bucket or has no expiry date.
+         */
+        public static ExpiryBucket of(LocalDate expiryDate, LocalDate today) {
+            if (expiryDate == null) {
+                return null;
+            }
+            long days = ChronoUnit.DAYS.between(today, expiryDate);
+            for (ExpiryBucket bucket : values()) {
+                if (days <= bucket.days) {
+                    return bucket;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The fields of an inventory batch the expiry report shows. Package, batch number, cost price
+     * and location are {@code null} when not recorded.
+     */
+    public record ExpiringBatch(Long inventoryId, Long productId, String productName, String packageDescription,
+                                String batchNumber, LocalDate expiryDate, int quantity, BigDecimal costPrice,
+                                String location) {
+    }
+
+    /**
+     * The size of a bucket; the value leaves out batches without a cost price.
+     */
+    public record BucketSummary(ExpiryBucket bucket, int days, int batches, long units, BigDecimal value) {
+    }
+
+    private record Snapshot(LocalDate day, Map<ExpiryBucket, List<ExpiringBatch>> buckets) {
+    }
+
+    /**
+     * The batches of one bucket, soonest expiry first.
+     */
+    public List<ExpiringBatch> batches(ExpiryBucket bucket) {
+        return current().buckets().get(bucket);
+    }
+
+    public List<BucketSummary> summary() {
+        Map<ExpiryBucket, List<ExpiringBatch>> buckets = current().buckets();
+        List<BucketSummary> summary = new ArrayList<>(buckets.size());
+        for (Map.Entry<ExpiryBucket, List<ExpiringBatch>> entry : buckets.entrySet()) {
+            long units = 0;
+            BigDecimal value = BigDecimal.ZERO;
+            for (ExpiringBatch batch : entry.getValue()) {
+                units += batch.quantity();
+                if (batch.costPrice() != null) {
+                    value = value.add(batch.costPrice().multiply(BigDecimal.valueOf(batch.quantity())));
+                }
+            }
+            summary.add(new BucketSummary(entry.getKey(), entry.getKey().getDays(), entry.getValue().size(), units, value));
+        }
+        return summary;
+    }
+
+    @TransactionalEventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        stale.set(true);
+    }
+
+    /**
+     * Quarantines the batches that expired and rebuilds the buckets if the day or the stock changed.
+     */
+    @Scheduled(fixedDelayString = "${healio.expiry.refresh-interval:PT1M}")
+    public void refresh() {
+        LocalDate today = LocalDate.now();
+        int quarantined = quarantine(today);
+        Snapshot current = snapshot.get();
+        if (quarantined > 0 || stale.get() || current == null || !current.day().equals(today)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Deactivates the stocked batches that expired before {@code today}, returning how many.
+     */
+    int quarantine(LocalDate today) {
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        List<Long> rows = transactionTemplate.execute(status -> {
+            List<Long> changed = jdbcTemplate.queryForList(QUARANTINE_SQL, Long.class,
+                    Timestamp.valueOf(LocalDateTime.now()), auditor, Date.valueOf(today));
+            if (!changed.isEmpty()) {
+                List<Long> productIds = changed.stream().distinct().toList();
+                inventoryReservationService.stockChanged(productIds);
+                eventPublisher.publishEvent(new InventoryChangedEvent(productIds));
+            }
+            return changed;
+        });
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        log.info("Quarantined {} expired inventory batches", rows.size());
+        return rows.size();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current == null || !current.day().equals(LocalDate.now())) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    private synchronized Snapshot rebuild() {
+        stale.set(false);
+        LocalDate today = LocalDate.now();
+        Map<ExpiryBucket, List<ExpiringBatch>> buckets = new EnumMap<>(ExpiryBucket.class);
+        for (ExpiryBucket bucket : ExpiryBucket.values()) {
+            buckets.put(bucket, new ArrayList<>());
+        }
+        ExpiryBucket last = ExpiryBucket.values()[ExpiryBucket.values().length - 1];
+        List<ExpiringBatch> batches = jdbcTemplate.query(SELECT_EXPIRING_SQL, EXPIRING_BATCH,
+                Date.valueOf(today.plusDays(last.getDays() + 1L)), Date.valueOf(today));
+        for (ExpiringBatch batch : batches) {
+            buckets.get(ExpiryBucket.of(batch.expiryDate(), today)).add(batch);
+        }
+        buckets.replaceAll((bucket, list) -> Collections.unmodifiableList(list));
+        Snapshot next = new Snapshot(today, Collections.unmodifiableMap(buckets));
+        snapshot.set(next);
+        return next;
+    }
+}
@@ -0,0 +1,147 @@
+package com.heal.io.service;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A medicine import running on the background import executor. Counters are updated by the
+ * worker thread and polled by the progress endpoint.
+ */
+@Getter
+public class ImportJob implements ImportProgressListener {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String fileName;
+    private final ImportMode mode;
+    private final long totalBytes;
+    private final Path reportFile;
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong valid = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile MedicineCsvImportService.ImportResult result;
+
+    public ImportJob(String id, String fileName, ImportMode mode, long totalBytes, Path reportFile) {
+        this.id = id;
+        this.fileName = fileName;
+        this.mode = mode;
+        this.totalBytes = totalBytes;
+        this.reportFile = reportFile;
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void finish(MedicineCsvImportService.ImportResult result) {
+        this.result = result;
+        finishedAt = Instant.now();
+        if (cancelRequested) {
+            status = Status.CANCELLED;
+        } else {
+            status = result.isSuccess() ? Status.COMPLETED : Status.FAILED;
+        }
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    @Override
+    public void onBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    @Override
+    public void onRowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    @Override
+    public void onImported(int count) {
+        imported.addAndGet(count);
+    }
+
+    @Override
+    public void onUnchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    @Override
+    public void onValidated() {
+        valid.incrementAndGet();
+    }
+
+    @Override
+    public void onSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /**
+     * Snapshot of the job for the JSON progress endpoint.
+     */
+    public Map<String, Object> toProgress() {
+        Instant start = startedAt;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = start != null ? Math.max(Duration.between(start, end).toMillis(), 1) / 1000.0 : 0;
+        long rows = rowsRead.get();
+        long bytes = bytesRead.get();
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", id);
+        progress.put("fileName", fileName);
+        progress.put("mode", mode.name());
+        progress.put("status", status.name());
+        progress.put("rowsRead", rows);
+        progress.put("imported", imported.get());
+        progress.put("unchanged", unchanged.get());
+        progress.put("valid", valid.get());
+        progress.put("skipped", skipped.get());
+        progress.put("rowsPerSecond", seconds > 0 ? Math.round(rows / seconds) : 0);
+        progress.put("percent", totalBytes > 0 ? Math.min(100, bytes * 100 / totalBytes) : null);
+        progress.put("etaSeconds", !isFinished() && seconds > 0 && bytes > 0 && totalBytes > bytes
+                ? Math.round((totalBytes - bytes) / (bytes / seconds)) : null);
+        progress.put("elapsedSeconds", Math.round(seconds));
+
+        MedicineCsvImportService.ImportResult finalResult = result;
+        if (finalResult != null) {
+            progress.put("success", finalResult.isSuccess());
+            progress.put("message", finalResult.getMessage());
+            progress.put("error", finalResult.getError());
+            progress.put("inserted", finalResult.getInserted());
+            progress.put("updated", finalResult.getUpdated());
+            progress.put("removed", finalResult.getRemoved());
+            progress.put("packagesRemoved", finalResult.getPackagesRemoved());
+            progress.put("skippedDetails", finalResult.getSkipped().stream().limit(10).toList());
+            progress.put("reportUrl", "/import/jobs/" + id + "/report");
+        }
+        return progress;
+    }
+}
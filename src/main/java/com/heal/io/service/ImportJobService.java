@@ -0,0 +1,167 @@
+package com.heal.io.service;
+
+import com.heal.io.config.ImportProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs medicine imports on the bounded import executor and keeps track of their progress.
+ * Reference data is not loaded by the jobs; seed it once beforehand through
+ * {@link ReferenceDataImportService}, so the medicine writer finds its manufacturers and dosage
+ * forms instead of creating them row by row.
+ */
+@Service
+@Slf4j
+public class ImportJobService {
+
+    private static final int MAX_RETAINED_JOBS = 50;
+
+    private final MedicineCsvImportService importService;
+    private final ProductSearchIndex productSearchIndex;
+    private final DimensionCache dimensionCache;
+    private final ImportProperties importProperties;
+    private final ExecutorService importExecutor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(MedicineCsvImportService importService,
+                            ProductSearchIndex productSearchIndex,
+                            DimensionCache dimensionCache,
+                            ImportProperties importProperties,
+                            @Qualifier("importExecutor") ExecutorService importExecutor) {
+        this.importService = importService;
+        this.productSearchIndex = productSearchIndex;
+        this.dimensionCache = dimensionCache;
+        this.importProperties = importProperties;
+        this.importExecutor = importExecutor;
+    }
+
+    /**
+     * Queues an import of {@code file}. The file is owned by the job and deleted when it finishes.
+     */
+    public ImportJob submit(Path file, String fileName, ImportMode mode) throws IOException {
+        return submit(file, fileName, mode, true);
+    }
+
+    /**
+     * Spools a request body to a temp file with a fixed-size buffer and queues it, so heap usage
+     * does not depend on the size of the upload.
+     */
+    public ImportJob submit(InputStream body, String fileName, ImportMode mode) throws IOException {
+        Path spool = Files.createTempFile("medicine-import-", ".csv");
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        return submit(spool, fileName, mode, true);
+    }
+
+    /**
+     * Queues an import of a CSV file that already lives in the configured server import directory.
+     */
+    public ImportJob submitServerFile(String relativePath, ImportMode mode) throws IOException {
+        if (!StringUtils.hasText(importProperties.getDirectory())) {
+            throw new IllegalStateException("Server-side imports are disabled, set healio.import.directory to enable them");
+        }
+        Path directory = Path.of(importProperties.getDirectory()).toAbsolutePath().normalize();
+        Path file = directory.resolve(relativePath).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("File not found in import directory: " + relativePath);
+        }
+        return submit(file, file.getFileName().toString(), mode, false);
+    }
+
+    private ImportJob submit(Path file, String fileName, ImportMode mode, boolean deleteWhenDone) throws IOException {
+        Path reportFile = Files.createTempFile("medicine-import-report-", ".csv");
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName, mode, Files.size(file), reportFile);
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        try {
+            importExecutor.execute(() -> run(job, file, deleteWhenDone));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(reportFile);
+            if (deleteWhenDone) {
+                Files.deleteIfExists(file);
+            }
+            throw new IllegalStateException("Too many imports are already running, please try again later");
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Optional<ImportJob> cancel(String id) {
+        ImportJob job = jobs.get(id);
+        if (job != null && !job.isFinished()) {
+            job.requestCancel();
+        }
+        return Optional.ofNullable(job);
+    }
+
+    private void run(ImportJob job, Path file, boolean deleteWhenDone) {
+        job.markRunning();
+        MedicineCsvImportService.ImportResult result;
+        try (InputStream in = Files.newInputStream(file);
+             ImportReport report = ImportReport.to(job.getReportFile())) {
+            result = importService.importMedicines(in, job.getMode(), job, report);
+        } catch (Exception e) {
+            log.error("Import job {} failed: {}", job.getId(), e.getMessage(), e);
+            result = new MedicineCsvImportService.ImportResult();
+            result.setError("Error importing CSV: " + e.getMessage());
+        } finally {
+            if (deleteWhenDone) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete import file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        if (job.getMode() != ImportMode.VALIDATE) {
+            // The writer adds manufacturers, generics and dosage forms without going through the repositories
+            dimensionCache.evictAll();
+            if (result.getImported() > 0 || result.getRemoved() > 0) {
+                productSearchIndex.rebuild();
+            }
+        }
+        job.finish(result);
+        log.info("Import job {} finished with status {}", job.getId(), job.getStatus());
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() < MAX_RETAINED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getFinishedAt))
+                .limit(jobs.size() - MAX_RETAINED_JOBS + 1L)
+                .forEach(job -> {
+                    jobs.remove(job.getId());
+                    try {
+                        Files.deleteIfExists(job.getReportFile());
+                    } catch (IOException e) {
+                        log.warn("Could not delete import report {}: {}", job.getReportFile(), e.getMessage());
+                    }
+                });
+    }
+}
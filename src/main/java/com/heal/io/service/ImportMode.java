@@ -0,0 +1,20 @@
+package com.heal.io.service;
+
+public enum ImportMode {
+
+    /**
+     * Write every row of the file, updating existing products and reconciling their packages.
+     */
+    FULL,
+
+    /**
+     * Skip rows whose content hash is unchanged since the last import and deactivate products
+     * that are no longer in the file. Meant for repeated refreshes of the complete catalog.
+     */
+    INCREMENTAL,
+
+    /**
+     * Parse and check every row without touching the database; problems go to the import report.
+     */
+    VALIDATE
+}
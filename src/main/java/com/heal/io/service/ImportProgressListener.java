@@ -0,0 +1,33 @@
+package com.heal.io.service;
+
+/**
+ * Receives progress callbacks from a running import. Implementations must be thread-safe
+ * because progress is read by other threads while the import is running.
+ */
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = new ImportProgressListener() {
+    };
+
+    default void onBytesRead(long bytes) {
+    }
+
+    default void onRowRead() {
+    }
+
+    default void onImported(int count) {
+    }
+
+    default void onUnchanged() {
+    }
+
+    default void onValidated() {
+    }
+
+    default void onSkipped() {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.heal.io.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Per-row diagnostics of an import, streamed to a CSV file as they occur so that memory use does
+ * not grow with the number of problems in the file. Only the counters are kept in memory.
+ * <p>
+ * Thread-safe: rows are reported both by the reading thread and by the chunk writers.
+ */
+public class ImportReport implements Closeable {
+
+    public enum Level { ERROR, WARNING }
+
+    private final BufferedWriter writer;
+    private int errors;
+    private int warnings;
+
+    private ImportReport(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * A report written to {@code file}, replacing any previous content.
+     */
+    public static ImportReport to(Path file) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write("line,brand_id,level,message");
+        writer.newLine();
+        return new ImportReport(writer);
+    }
+
+    /**
+     * A report that only counts, for imports nobody will download a report for.
+     */
+    public static ImportReport discard() {
+        return new ImportReport(null);
+    }
+
+    public void error(int lineNumber, String brandId, String message) {
+        add(lineNumber, brandId, Level.ERROR, message);
+    }
+
+    public void warning(int lineNumber, String brandId, String message) {
+        add(lineNumber, brandId, Level.WARNING, message);
+    }
+
+    private synchronized void add(int lineNumber, String brandId, Level level, String message) {
+        if (level == Level.ERROR) {
+            errors++;
+        } else {
+            warnings++;
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(Integer.toString(lineNumber));
+            writer.write(',');
+            writer.write(quote(brandId));
+            writer.write(',');
+            writer.write(level.name());
+            writer.write(',');
+            writer.write(quote(message));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write import report", e);
+        }
+    }
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    public synchronized int getWarnings() {
+        return warnings;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
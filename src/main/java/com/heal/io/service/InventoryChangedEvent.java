@@ -0,0 +1,10 @@
+package com.heal.io.service;
+
+import java.util.Collection;
+
+/**
+ * Published by the {@link InventoryLedgerService} whenever it changes the stock of products, and by
+ * the {@link ExpiryService} when it quarantines expired batches.
+ */
+public record InventoryChangedEvent(Collection<Long> productIds) {
+}
@@ -0,0 +1,294 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Inventory;
+import com.heal.io.entity.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Applies stock receipts to the inventory without reading the rows first. Each inventory row is
+ * changed by a single {@code INSERT ... ON CONFLICT DO UPDATE SET quantity = quantity + ?}, so
+ * concurrent receipts of the same stock add up instead of overwriting each other, and every line
+ * is recorded as a {@link StockMovement}. All lines of a document are sent as one batch.
+ * <p>
+ * Sales take stock the same way: {@link #allocateFefo} decrements the batches that expire first
+ * with conditional updates, so concurrent checkouts never sell the same unit twice. Units reserved
+ * for carts by the {@link InventoryReservationService} are not available to them. Sold-out batches
+ * stay active until the next receipt of their product and package, which deactivates them.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryLedgerService {
+
+    // Conflict target matching the uk_inventory_stock_key expression index in db/postgres-schema.sql
+    private static final String STOCK_KEY = "(product_id, (COALESCE(product_package_id, 0)), " +
+            "(COALESCE(batch_number, '')), (COALESCE(expiry_date, DATE '0001-01-01')))";
+
+    private static final String UPSERT_INVENTORY_SQL =
+            "INSERT INTO inventory (product_id, product_package_id, batch_number, expiry_date, quantity, " +
+            "reserved_quantity, available_quantity, reorder_level, cost_price, selling_price, location, " +
+            "last_restocked_at, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, 0, ?, " + Inventory.DEFAULT_REORDER_LEVEL + ", ?, ?, ?, ?, true, ?, ?, ?, ?) " +
+            "ON CONFLICT " + STOCK_KEY + " DO UPDATE SET " +
+            "quantity = inventory.quantity + EXCLUDED.quantity, " +
+            "available_quantity = inventory.quantity + EXCLUDED.quantity - inventory.reserved_quantity, " +
+            "cost_price = COALESCE(EXCLUDED.cost_price, inventory.cost_price), " +
+            "selling_price = COALESCE(EXCLUDED.selling_price, inventory.selling_price), " +
+            "location = COALESCE(EXCLUDED.location, inventory.location), " +
+            "last_restocked_at = EXCLUDED.last_restocked_at, is_active = true, " +
+            "updated_at = EXCLUDED.updated_at, last_modified_by = EXCLUDED.last_modified_by";
+
+    private static final String INSERT_MOVEMENT_SQL =
+            "INSERT INTO stock_movement (inventory_id, product_id, movement_type, quantity, unit_cost, " +
+            "reference_number, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "SELECT i.id, i.product_id, ?, ?, ?, ?, true, ?, ?, ?, ? FROM inventory i " +
+            "WHERE i.product_id = ? AND COALESCE(i.product_package_id, 0) = COALESCE(?, 0) " +
+            "AND COALESCE(i.batch_number, '') = COALESCE(?, '') " +
+            "AND COALESCE(i.expiry_date, DATE '0001-01-01') = COALESCE(?, DATE '0001-01-01')";
+
+    // Deactivates the sold-out batches of the received products that have a stocked active batch of
+    // the same package, so they leave idx_inventory_low_stock. The subquery is matched against that
+    // index. Rows locked by another transaction, such as a receipt refilling them, are left for the
+    // next receipt instead of being waited for.
+    private static final String RETIRE_DEPLETED_SQL =
+            "UPDATE inventory SET is_active = false, updated_at = ?, last_modified_by = ? WHERE id IN (" +
+            "SELECT d.id FROM inventory d WHERE d.product_id = ANY (?) AND d.is_active = true " +
+            "AND d.available_quantity <= d.reorder_level AND d.quantity = 0 " +
+            "AND EXISTS (SELECT 1 FROM inventory s WHERE s.product_id = d.product_id " +
+            "AND s.product_package_id IS NOT DISTINCT FROM d.product_package_id " +
+            "AND s.is_active = true AND s.quantity > 0) FOR UPDATE OF d SKIP LOCKED)";
+
+    // Sellable batches of a product, first expiry first; batches without expiry date go last
+    private static final String SELECT_FEFO_CANDIDATES_SQL =
+            "SELECT id FROM inventory WHERE product_id = ? AND is_active = true AND available_quantity > 0 " +
+            "AND (expiry_date IS NULL OR expiry_date >= CURRENT_DATE)";
+
+    private static final String FEFO_ORDER = " ORDER BY expiry_date NULLS LAST, id";
+
+    // Takes up to the requested quantity from one row. The row is locked before LEAST() is
+    // evaluated, so a concurrent sale is waited for and the quantity can never go negative.
+    private static final String TAKE_SQL =
+            "WITH target AS (SELECT id, LEAST(available_quantity, ?) AS take FROM inventory " +
+            "WHERE id = ? AND available_quantity > 0 FOR UPDATE) " +
+            "UPDATE inventory i SET quantity = i.quantity - t.take, " +
+            "available_quantity = i.available_quantity - t.take, updated_at = ?, last_modified_by = ? " +
+            "FROM target t WHERE i.id = t.id " +
+            "RETURNING i.id, i.product_id, i.batch_number, i.expiry_date, t.take, i.cost_price, i.selling_price";
+
+    private static final String INSERT_ISSUE_SQL =
+            "INSERT INTO stock_movement (inventory_id, product_id, movement_type, quantity, unit_cost, " +
+            "reference_number, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?)";
+
+    // Passes over the candidates before giving up when concurrent sales keep emptying them
+    private static final int MAX_ALLOCATION_PASSES = 3;
+
+    private static final RowMapper<Allocation> ALLOCATION_MAPPER = (rs, rowNum) -> new Allocation(
+            rs.getLong(1), rs.getLong(2), rs.getString(3),
+            rs.getDate(4) != null ? rs.getDate(4).toLocalDate() : null,
+            rs.getInt(5), rs.getBigDecimal(6), rs.getBigDecimal(7));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorProvider;
+    private final InventoryReservationService inventoryReservationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * One received line of a stock-in document.
+     */
+    public record Receipt(Long productId, Long packageId, String batchNumber, LocalDate expiryDate,
+                          int quantity, BigDecimal unitCost, BigDecimal sellingPrice, String location) {
+
+        StockKey key() {
+            return new StockKey(productId, packageId, batchNumber, expiryDate);
+        }
+    }
+
+    /**
+     * Quantity taken from one inventory row, with the batch data a sale line needs.
+     */
+    public record Allocation(Long inventoryId, Long productId, String batchNumber, LocalDate expiryDate,
+                             int quantity, BigDecimal costPrice, BigDecimal sellingPrice) {
+    }
+
+    /**
+     * Adds the received quantities to the inventory and records one movement per line. Batches of
+     * the received products that are sold out are deactivated once the product and package have
+     * stock in another batch.
+     *
+     * @param referenceNumber number of the document the lines belong to
+     */
+    @Transactional
+    public void receive(String referenceNumber, List<Receipt> receipts) {
+        if (receipts.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+
+        // A statement may change a row only once, and rewritten batches become one statement, so
+        // lines for the same stock are summed first. Applying them in key order keeps two documents
+        // from locking the same rows in opposite orders.
+        List<Receipt> merged = merge(receipts);
+        jdbcTemplate.batchUpdate(UPSERT_INVENTORY_SQL, merged, merged.size(), (ps, receipt) -> {
+            ps.setLong(1, receipt.productId());
+            setLong(ps, 2, receipt.packageId());
+            ps.setString(3, receipt.batchNumber());
+            ps.setDate(4, receipt.expiryDate() != null ? Date.valueOf(receipt.expiryDate()) : null);
+            ps.setInt(5, receipt.quantity());
+            ps.setInt(6, receipt.quantity());
+            ps.setBigDecimal(7, receipt.unitCost());
+            ps.setBigDecimal(8, receipt.sellingPrice());
+            ps.setString(9, receipt.location());
+            ps.setTimestamp(10, now);
+            ps.setTimestamp(11, now);
+            ps.setTimestamp(12, now);
+            ps.setString(13, auditor);
+            ps.setString(14, auditor);
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_MOVEMENT_SQL, receipts, receipts.size(), (ps, receipt) -> {
+            ps.setString(1, StockMovement.Type.STOCK_IN.name());
+            ps.setInt(2, receipt.quantity());
+            ps.setBigDecimal(3, receipt.unitCost());
+            ps.setString(4, referenceNumber);
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            ps.setString(7, auditor);
+            ps.setString(8, auditor);
+            ps.setLong(9, receipt.productId());
+            setLong(ps, 10, receipt.packageId());
+            ps.setString(11, receipt.batchNumber());
+            ps.setDate(12, receipt.expiryDate() != null ? Date.valueOf(receipt.expiryDate()) : null);
+        });
+        List<Long> productIds = merged.stream().map(Receipt::productId).distinct().toList();
+        jdbcTemplate.update(RETIRE_DEPLETED_SQL, now, auditor, productIds.toArray(Long[]::new));
+        inventoryReservationService.stockChanged(productIds);
+        eventPublisher.publishEvent(new InventoryChangedEvent(productIds));
+    }
+
+    /**
+     * Takes {@code quantity} units of a product from its sellable batches, earliest expiry first.
+     * The rows stay locked until the surrounding transaction ends; call {@link #recordIssues} with
+     * the result in the same transaction.
+     *
+     * @param packageId package the units must come from, or null for any
+     * @throws IllegalStateException when there are not enough units in stock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Allocation> allocateFefo(Long productId, Long packageId, int quantity) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        List<Allocation> allocations = new ArrayList<>();
+        int remaining = quantity;
+        for (int pass = 0; pass < MAX_ALLOCATION_PASSES && remaining > 0; pass++) {
+            List<Long> candidates = packageId != null
+                    ? jdbcTemplate.queryForList(SELECT_FEFO_CANDIDATES_SQL + " AND product_package_id = ?" + FEFO_ORDER,
+                            Long.class, productId, packageId)
+                    : jdbcTemplate.queryForList(SELECT_FEFO_CANDIDATES_SQL + FEFO_ORDER, Long.class, productId);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            for (Long inventoryId : candidates) {
+                List<Allocation> taken = jdbcTemplate.query(TAKE_SQL, ALLOCATION_MAPPER,
+                        remaining, inventoryId, now, auditor);
+                if (!taken.isEmpty()) {
+                    allocations.add(taken.get(0));
+                    remaining -= taken.get(0).quantity();
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (remaining > 0) {
+            throw new IllegalStateException("Insufficient stock for product " + productId + ": " +
+                    (quantity - remaining) + " of " + quantity + " available");
+        }
+        inventoryReservationService.stockChanged(List.of(productId));
+        eventPublisher.publishEvent(new InventoryChangedEvent(List.of(productId)));
+        return allocations;
+    }
+
+    /**
+     * Records the allocations as outgoing movements of the document {@code referenceNumber}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordIssues(String referenceNumber, List<Allocation> allocations) {
+        if (allocations.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        jdbcTemplate.batchUpdate(INSERT_ISSUE_SQL, allocations, allocations.size(), (ps, allocation) -> {
+            ps.setLong(1, allocation.inventoryId());
+            ps.setLong(2, allocation.productId());
+            ps.setString(3, StockMovement.Type.SALE.name());
+            ps.setInt(4, -allocation.quantity());
+            ps.setBigDecimal(5, allocation.costPrice());
+            ps.setString(6, referenceNumber);
+            ps.setTimestamp(7, now);
+            ps.setTimestamp(8, now);
+            ps.setString(9, auditor);
+            ps.setString(10, auditor);
+        });
+    }
+
+    /**
+     * Sums the lines per stock key, keeping the last price and location given for it, in key order.
+     */
+    static List<Receipt> merge(List<Receipt> receipts) {
+        Map<StockKey, Receipt> merged = new TreeMap<>();
+        for (Receipt receipt : receipts) {
+            merged.merge(receipt.key(), receipt, (previous, next) -> new Receipt(
+                    previous.productId(), previous.packageId(), previous.batchNumber(), previous.expiryDate(),
+                    previous.quantity() + next.quantity(),
+                    next.unitCost() != null ? next.unitCost() : previous.unitCost(),
+                    next.sellingPrice() != null ? next.sellingPrice() : previous.sellingPrice(),
+                    next.location() != null ? next.location() : previous.location()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    /**
+     * The columns of uk_inventory_stock_key, ordered with missing values as the index coalesces them.
+     */
+    record StockKey(Long productId, Long packageId, String batchNumber, LocalDate expiryDate)
+            implements Comparable<StockKey> {
+
+        private static final Comparator<StockKey> ORDER = Comparator
+                .comparing(StockKey::productId)
+                .thenComparing(k -> k.packageId() != null ? k.packageId() : 0L)
+                .thenComparing(k -> k.batchNumber() != null ? k.batchNumber() : "")
+                .thenComparing(k -> k.expiryDate() != null ? k.expiryDate() : LocalDate.of(1, 1, 1));
+
+        @Override
+        public int compareTo(StockKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
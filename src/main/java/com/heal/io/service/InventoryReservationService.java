@@ -0,0 +1,432 @@
+package com.heal.io.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.heal.io.config.ReservationProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock held for the carts open at the POS counters. Adding a line to a cart reserves its quantity
+ * against the sellable stock of the product; another cart can only reserve what is left, and the
+ * reservation lapses when the cart is not touched for the configured TTL. Reservations and the
+ * sellable stock they are checked against live in memory, so availability checks while a cashier
+ * types do not query the database.
+ * <p>
+ * The reserved totals are written to {@code inventory.reserved_quantity} of the earliest expiring
+ * batches in the background, where {@link InventoryLedgerService#allocateFefo} honours them: a
+ * sale cannot take units held by another cart. A checkout releases its own cart's reservations in
+ * its transaction before taking the stock.
+ * <p>
+ * Reservations are kept by the node that took them. Each node stores its total per product as an
+ * {@code inventory_hold} row under its node id, and the batches are given the sum over all nodes,
+ * so nodes sharing the database never overwrite each other's holds. A starting node drops only
+ * the rows of its previous run; the rows of a node that went away lapse with their last hold and
+ * are swept by the nodes still running.
+ */
+@Service
+@Slf4j
+public class InventoryReservationService {
+
+    private static final String SELLABLE = "is_active = true AND (expiry_date IS NULL OR expiry_date >= CURRENT_DATE)";
+
+    // Sellable units less those other nodes hold
+    private static final String SELECT_SELLABLE_SQL =
+            "SELECT i.product_id, COALESCE(SUM(i.quantity), 0) - COALESCE((SELECT SUM(h.quantity) " +
+            "FROM inventory_hold h WHERE h.product_id = i.product_id AND h.node_id <> ? AND h.expires_at > ?), 0) " +
+            "FROM inventory i WHERE i.product_id = ANY (?) AND " + SELLABLE + " GROUP BY i.product_id";
+
+    // Serializes the writers of a product's reserved quantity across nodes. Key-share locks taken
+    // by inserts that reference the product do not conflict with it.
+    private static final String LOCK_PRODUCTS_SQL =
+            "SELECT id FROM product WHERE id = ANY (?) ORDER BY id FOR NO KEY UPDATE";
+
+    private static final String UPSERT_HOLD_SQL =
+            "INSERT INTO inventory_hold (node_id, product_id, quantity, expires_at, is_active, " +
+            "created_at, updated_at, created_by, last_modified_by) VALUES (?, ?, ?, ?, true, ?, ?, ?, ?) " +
+            "ON CONFLICT (node_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+            "expires_at = EXCLUDED.expires_at, updated_at = EXCLUDED.updated_at, last_modified_by = EXCLUDED.last_modified_by";
+
+    private static final String DELETE_HOLD_SQL = "DELETE FROM inventory_hold WHERE node_id = ? AND product_id = ?";
+
+    // Spreads the holds of all nodes on a product over its sellable batches, earliest expiry first,
+    // the order in which allocateFefo takes them. Rows whose share did not change are not written.
+    private static final String WRITE_RESERVED_SQL =
+            "UPDATE inventory i SET reserved_quantity = LEAST(r.reserved, i.quantity), " +
+            "available_quantity = i.quantity - LEAST(r.reserved, i.quantity), updated_at = ?, last_modified_by = ? " +
+            "FROM (SELECT id, CASE WHEN " + SELLABLE + " THEN GREATEST(0, LEAST(quantity, h.held - " +
+            "(SUM(quantity) FILTER (WHERE " + SELLABLE + ") OVER (ORDER BY expiry_date NULLS LAST, id) - quantity))) " +
+            "ELSE 0 END AS reserved FROM inventory CROSS JOIN (SELECT COALESCE(SUM(quantity), 0) AS held " +
+            "FROM inventory_hold WHERE product_id = ? AND expires_at > ?) h WHERE product_id = ?) r " +
+            "WHERE i.id = r.id AND i.reserved_quantity <> LEAST(r.reserved, i.quantity)";
+
+    // The holds of this node's previous run, which ended with its carts
+    private static final String DELETE_NODE_HOLDS_SQL = "DELETE FROM inventory_hold WHERE node_id = ? RETURNING product_id";
+
+    // Holds of nodes that stopped renewing them
+    private static final String DELETE_EXPIRED_HOLDS_SQL = "DELETE FROM inventory_hold WHERE expires_at <= ? RETURNING product_id";
+
+    // Reserved quantities no live hold accounts for, such as those written before holds were kept per node
+    private static final String SELECT_UNHELD_SQL =
+            "SELECT DISTINCT i.product_id FROM inventory i WHERE i.reserved_quantity <> 0 AND NOT EXISTS " +
+            "(SELECT 1 FROM inventory_hold h WHERE h.product_id = i.product_id AND h.expires_at > ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditorAware<String> auditorProvider;
+    private final ReservationProperties reservationProperties;
+    private final String nodeId;
+
+    private final Map<Long, ProductHolds> holds = new ConcurrentHashMap<>();
+    // Products whose reserved total changed since it was last written to the inventory
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Cache<Long, Integer> sellableStock;
+
+    public InventoryReservationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       AuditorAware<String> auditorProvider,
+                                       ReservationProperties reservationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.auditorProvider = auditorProvider;
+        this.reservationProperties = reservationProperties;
+        this.nodeId = reservationProperties.getNodeId() != null && !reservationProperties.getNodeId().isBlank()
+                ? reservationProperties.getNodeId() : hostName();
+        this.sellableStock = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(reservationProperties.getStockCacheTtl())
+                .build();
+    }
+
+    /**
+     * A cart line to reserve stock for.
+     *
+     * @param cartId    identifier the POS client chose for its cart
+     * @param quantity  units the line now holds; 0 releases it
+     */
+    public record ReservationRequest(String cartId, Long productId, int quantity) {
+    }
+
+    /**
+     * The state of a cart line after it was reserved.
+     *
+     * @param available units other carts can still reserve
+     * @param expiresAt when the line lapses unless it is changed again, or null once released
+     */
+    public record Reservation(String cartId, Long productId, int quantity, int available, Instant expiresAt) {
+    }
+
+    private record Hold(int quantity, Instant expiresAt) {
+    }
+
+    /**
+     * The reservations of one product by cart. Replaced rather than changed, so readers never see
+     * a total that does not match the carts.
+     */
+    private record ProductHolds(Map<String, Hold> carts, int total) {
+
+        private static final ProductHolds EMPTY = new ProductHolds(Map.of(), 0);
+
+        int quantity(String cartId) {
+            Hold hold = carts.get(cartId);
+            return hold != null ? hold.quantity() : 0;
+        }
+
+        Instant expiresAt() {
+            Instant latest = Instant.EPOCH;
+            for (Hold hold : carts.values()) {
+                if (hold.expiresAt().isAfter(latest)) {
+                    latest = hold.expiresAt();
+                }
+            }
+            return latest;
+        }
+
+        /**
+         * @return the holds with {@code cartId} set to {@code hold}, or null when none are left
+         */
+        ProductHolds with(String cartId, Hold hold) {
+            Map<String, Hold> changed = new HashMap<>(carts);
+            if (hold != null) {
+                changed.put(cartId, hold);
+            } else {
+                changed.remove(cartId);
+            }
+            return changed.isEmpty() ? null
+                    : new ProductHolds(changed, total - quantity(cartId) + (hold != null ? hold.quantity() : 0));
+        }
+    }
+
+    /**
+     * Sets the quantity a cart holds of a product and restarts the line's TTL. Lowering a line
+     * always succeeds, raising it only as far as the stock not held by other carts allows.
+     *
+     * @throws IllegalArgumentException when the request is incomplete
+     * @throws IllegalStateException when there is not enough unreserved stock
+     */
+    public Reservation reserve(ReservationRequest request) {
+        if (request.cartId() == null || request.cartId().isBlank() || request.productId() == null) {
+            throw new IllegalArgumentException("Cart and product are required");
+        }
+        if (request.quantity() < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        String cartId = request.cartId();
+        int sellable = sellable(List.of(request.productId())).get(request.productId());
+        Instant expiresAt = request.quantity() > 0 ? Instant.now().plus(reservationProperties.getTtl()) : null;
+
+        ProductHolds updated = holds.compute(request.productId(), (productId, current) -> {
+            ProductHolds base = current != null ? current : ProductHolds.EMPTY;
+            int others = base.total() - base.quantity(cartId);
+            if (request.quantity() > base.quantity(cartId) && others + request.quantity() > sellable) {
+                throw new IllegalStateException("Only " + Math.max(sellable - others, 0) +
+                        " units of product " + productId + " are available");
+            }
+            return base.with(cartId, request.quantity() > 0 ? new Hold(request.quantity(), expiresAt) : null);
+        });
+        dirty.add(request.productId());
+
+        int reserved = updated != null ? updated.total() : 0;
+        return new Reservation(cartId, request.productId(), request.quantity(), Math.max(sellable - reserved, 0), expiresAt);
+    }
+
+    /**
+     * Units of each product that are neither expired nor held by a cart.
+     */
+    public Map<Long, Integer> available(Collection<Long> productIds) {
+        Map<Long, Integer> available = new LinkedHashMap<>();
+        sellable(productIds).forEach((productId, sellable) -> {
+            ProductHolds productHolds = holds.get(productId);
+            available.put(productId, Math.max(sellable - (productHolds != null ? productHolds.total() : 0), 0));
+        });
+        return available;
+    }
+
+    /**
+     * Drops every reservation of a cart, for carts that are abandoned.
+     */
+    public void release(String cartId) {
+        removeCart(cartId);
+    }
+
+    /**
+     * Drops the reservations of a cart that is being checked out and writes the lower totals in the
+     * caller's transaction, so the sale can take the units the cart held. The reservations come
+     * back if the transaction rolls back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseForCheckout(String cartId) {
+        Map<Long, Hold> released = removeCart(cartId);
+        if (released.isEmpty()) {
+            return;
+        }
+        writeReserved(new TreeSet<>(released.keySet()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    released.forEach((productId, hold) -> {
+                        holds.compute(productId, (id, current) -> {
+                            ProductHolds base = current != null ? current : ProductHolds.EMPTY;
+                            // A line changed since the checkout started wins over the restored one
+                            return base.carts().containsKey(cartId) ? base : base.with(cartId, hold);
+                        });
+                        dirty.add(productId);
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets the cached sellable stock of products whose inventory changed, once the change is committed.
+     */
+    public void stockChanged(Collection<Long> productIds) {
+        List<Long> changed = List.copyOf(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sellableStock.invalidateAll(changed);
+                }
+            });
+        } else {
+            sellableStock.invalidateAll(changed);
+        }
+    }
+
+    /**
+     * Drops the reservations whose TTL has passed, along with the expired holds of other nodes, and
+     * writes the changed totals to the inventory.
+     */
+    @Scheduled(fixedDelayString = "${healio.reservations.flush-interval:PT5S}")
+    public void expireAndFlush() {
+        Instant now = Instant.now();
+        expire(now);
+        dirty.addAll(jdbcTemplate.queryForList(DELETE_EXPIRED_HOLDS_SQL, Long.class, Timestamp.from(now)));
+        flush();
+    }
+
+    /**
+     * The id this node's holds are stored under.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    void expire(Instant now) {
+        for (Long productId : holds.keySet()) {
+            holds.computeIfPresent(productId, (id, current) -> {
+                ProductHolds remaining = current;
+                for (Map.Entry<String, Hold> entry : current.carts().entrySet()) {
+                    if (entry.getValue().expiresAt().isBefore(now)) {
+                        remaining = remaining != null ? remaining.with(entry.getKey(), null) : null;
+                    }
+                }
+                if (remaining != current) {
+                    dirty.add(id);
+                }
+                return remaining;
+            });
+        }
+    }
+
+    void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        SortedSet<Long> productIds = new TreeSet<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            productIds.add(it.next());
+            it.remove();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeReserved(productIds));
+        } catch (RuntimeException e) {
+            dirty.addAll(productIds);
+            log.warn("Could not write reserved quantities of {} products: {}", productIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reservations are only held in memory, so the holds this node wrote in a previous run are
+     * void. Those of other nodes are left alone. Runs once at startup, so it drops whatever this
+     * node holds in memory as well.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resetReservedQuantities() {
+        holds.clear();
+        dirty.clear();
+        SortedSet<Long> productIds = transactionTemplate.execute(status -> {
+            SortedSet<Long> released = new TreeSet<>(jdbcTemplate.queryForList(DELETE_NODE_HOLDS_SQL, Long.class, nodeId));
+            released.addAll(jdbcTemplate.queryForList(SELECT_UNHELD_SQL, Long.class, Timestamp.from(Instant.now())));
+            if (!released.isEmpty()) {
+                writeReserved(released);
+            }
+            return released;
+        });
+        if (productIds != null && !productIds.isEmpty()) {
+            log.info("Released stale reservations of node {} on {} products", nodeId, productIds.size());
+        }
+    }
+
+    /**
+     * Stores this node's current totals of the products and writes the totals of all nodes to their
+     * batches. Runs in a transaction: the products are locked first, in product order, so that the
+     * sums are read after any other node's write of the same products has committed.
+     */
+    private void writeReserved(SortedSet<Long> productIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        jdbcTemplate.queryForList(LOCK_PRODUCTS_SQL, Long.class, (Object) productIds.toArray(Long[]::new));
+
+        Map<Long, ProductHolds> held = new LinkedHashMap<>();
+        List<Long> released = new ArrayList<>();
+        for (Long productId : productIds) {
+            ProductHolds productHolds = holds.get(productId);
+            if (productHolds != null) {
+                held.put(productId, productHolds);
+            } else {
+                released.add(productId);
+            }
+        }
+        List<Map.Entry<Long, ProductHolds>> upserts = new ArrayList<>(held.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_HOLD_SQL, upserts, upserts.size(), (ps, entry) -> {
+            ps.setString(1, nodeId);
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue().total());
+            ps.setTimestamp(4, Timestamp.from(entry.getValue().expiresAt()));
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            ps.setString(7, auditor);
+            ps.setString(8, auditor);
+        });
+        jdbcTemplate.batchUpdate(DELETE_HOLD_SQL, released, released.size(), (ps, productId) -> {
+            ps.setString(1, nodeId);
+            ps.setLong(2, productId);
+        });
+
+        Timestamp heldAfter = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(WRITE_RESERVED_SQL, productIds, productIds.size(), (ps, productId) -> {
+            ps.setTimestamp(1, now);
+            ps.setString(2, auditor);
+            ps.setLong(3, productId);
+            ps.setTimestamp(4, heldAfter);
+            ps.setLong(5, productId);
+        });
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot determine the host name, set healio.reservations.node-id", e);
+        }
+    }
+
+    private Map<Long, Hold> removeCart(String cartId) {
+        Map<Long, Hold> removed = new HashMap<>();
+        for (Long productId : holds.keySet()) {
+            holds.computeIfPresent(productId, (id, current) -> {
+                Hold hold = current.carts().get(cartId);
+                if (hold == null) {
+                    return current;
+                }
+                removed.put(id, hold);
+                return current.with(cartId, null);
+            });
+        }
+        dirty.addAll(removed.keySet());
+        return removed;
+    }
+
+    private Map<Long, Integer> sellable(Collection<Long> productIds) {
+        return sellableStock.getAll(productIds, missing -> {
+            Map<Long, Integer> loaded = new HashMap<>();
+            missing.forEach(productId -> loaded.put(productId, 0));
+            jdbcTemplate.query(SELECT_SELLABLE_SQL,
+                    rs -> {
+                        loaded.put(rs.getLong(1), rs.getInt(2));
+                    },
+                    nodeId, Timestamp.from(Instant.now()), missing.toArray(Long[]::new));
+            return loaded;
+        });
+    }
+}
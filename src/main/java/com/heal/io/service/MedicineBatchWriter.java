@@ -0,0 +1,364 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.ProductCategory;
+import com.heal.io.repository.ProductCategoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Set-based writer for the medicine import. Dimension tables are preloaded into
+ * name -> id maps once per import, and products and packages are written with
+ * JDBC batch statements instead of one JPA save per row.
+ * <p>
+ * Every product remembers the content hash of the CSV row it was last written from, so an
+ * incremental import can skip unchanged rows. Packages of existing products are reconciled by
+ * description: matching packages are updated in place, new ones inserted and packages that are
+ * no longer listed deactivated, since stock and sale items may still reference them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MedicineBatchWriter {
+
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO product (brand_id, name, slug, product_category_id, medicine_type_id, manufacturer_id, " +
+            "dosage_form_id, generic_id, strength, import_hash, requires_prescription, is_active, " +
+            "created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, true, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PRODUCT_SQL =
+            "UPDATE product SET name = ?, slug = ?, product_category_id = ?, medicine_type_id = ?, " +
+            "manufacturer_id = ?, dosage_form_id = ?, generic_id = ?, strength = ?, import_hash = ?, " +
+            "requires_prescription = COALESCE(requires_prescription, false), is_active = true, " +
+            "updated_at = ?, last_modified_by = ? WHERE id = ?";
+
+    private static final String DEACTIVATE_MISSING_PRODUCTS_SQL =
+            "UPDATE product SET is_active = false, import_hash = NULL, updated_at = ?, last_modified_by = ? " +
+            "WHERE brand_id IS NOT NULL AND is_active = true AND NOT (brand_id = ANY (?))";
+
+    private static final String INSERT_PACKAGE_SQL =
+            "INSERT INTO product_package (product_id, package_description, package_size, unit_price, " +
+            "quantity_per_package, unit_of_measure, is_default, is_active, " +
+            "created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PACKAGE_SQL =
+            "UPDATE product_package SET package_size = ?, unit_price = ?, quantity_per_package = ?, " +
+            "unit_of_measure = ?, is_default = ?, updated_at = ?, last_modified_by = ? WHERE id = ?";
+
+    private static final String DEACTIVATE_PACKAGES_SQL =
+            "UPDATE product_package SET is_active = false, is_default = false, updated_at = ?, last_modified_by = ? " +
+            "WHERE id = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCategoryRepository categoryRepository;
+    private final DimensionCache dimensionCache;
+    private final AuditorAware<String> auditorProvider;
+
+    /**
+     * Loads everything the import needs to look up: the Medicine category, all dimension
+     * names and the brand id -> product id / content hash mapping of the existing catalog.
+     */
+    public Dimensions prepare() {
+        ProductCategory medicineCategory = categoryRepository.findByName("Medicine").orElse(null);
+        if (medicineCategory == null) {
+            medicineCategory = categoryRepository.save(ProductCategory.builder()
+                    .name("Medicine")
+                    .description("Pharmaceutical medicines")
+                    .build());
+            dimensionCache.evictAll();
+        }
+
+        Dimensions dimensions = new Dimensions(medicineCategory.getId(),
+                auditorProvider.getCurrentAuditor().orElse("system"));
+        loadNames("SELECT name, id FROM medicine_type", dimensions.medicineTypes);
+        loadNames("SELECT name, id FROM manufacturer", dimensions.manufacturers);
+        loadNames("SELECT name, id FROM dosage_form", dimensions.dosageForms);
+        loadNames("SELECT name, id FROM generic", dimensions.generics);
+        jdbcTemplate.query("SELECT brand_id, id, import_hash FROM product WHERE brand_id IS NOT NULL",
+                (RowCallbackHandler) rs -> {
+                    Long brandId = rs.getLong(1);
+                    if (dimensions.productIds.putIfAbsent(brandId, rs.getLong(2)) == null && rs.getString(3) != null) {
+                        dimensions.productHashes.put(brandId, rs.getString(3));
+                    }
+                });
+
+        log.info("Import dimensions loaded: {} types, {} manufacturers, {} dosage forms, {} generics, {} products",
+                dimensions.medicineTypes.size(), dimensions.manufacturers.size(), dimensions.dosageForms.size(),
+                dimensions.generics.size(), dimensions.productIds.size());
+        return dimensions;
+    }
+
+    /**
+     * Creates the dimension rows referenced by {@code rows} that do not exist yet. Runs outside
+     * the chunk transaction so that a rolled back chunk never leaves dangling ids in the maps.
+     * Safe to call from several import workers at once: two workers that meet the same new name
+     * both run the insert, which is idempotent on the name, and both get the id of the same row.
+     * <p>
+     * New rows only get a name. Dosage forms used to take the slug of the first product row that
+     * referenced them, which clashed with the unique slugs of existing forms and depended on the
+     * order in which workers reached the rows.
+     */
+    public void createMissingDimensions(Dimensions dimensions, List<MedicineRow> rows) {
+        for (MedicineRow row : rows) {
+            resolve(dimensions.medicineTypes, row.type(), name -> insertDimension(dimensions, "medicine_type", name));
+            resolve(dimensions.manufacturers, row.manufacturer(), name -> insertDimension(dimensions, "manufacturer", name));
+            resolve(dimensions.dosageForms, row.dosageForm(), name -> insertDimension(dimensions, "dosage_form", name));
+            resolve(dimensions.generics, row.generic(), name -> insertDimension(dimensions, "generic", name));
+        }
+    }
+
+    private Long insertDimension(Dimensions dimensions, String table, String name) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> inserted = jdbcTemplate.queryForList("INSERT INTO " + table +
+                        " (name, is_active, created_at, updated_at, created_by, last_modified_by) " +
+                        "VALUES (?, true, ?, ?, ?, ?) ON CONFLICT (name) DO NOTHING RETURNING id",
+                Long.class, name, now, now, dimensions.auditor, dimensions.auditor);
+        if (!inserted.isEmpty()) {
+            return inserted.get(0);
+        }
+        // Created by another worker or before the import started
+        return jdbcTemplate.queryForObject("SELECT id FROM " + table + " WHERE name = ?", Long.class, name);
+    }
+
+    /**
+     * Writes one chunk of rows. Must be called inside a transaction; the returned
+     * {@link ChunkResult#insertedIds()} holds the brand id -> product id mapping of the products
+     * inserted by this chunk so the caller can merge it into {@link Dimensions#productIds} once
+     * the transaction has committed.
+     */
+    public ChunkResult write(Dimensions dimensions, List<MedicineRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = dimensions.auditor;
+
+        List<MedicineRow> inserts = new ArrayList<>();
+        List<MedicineRow> updates = new ArrayList<>();
+        for (MedicineRow row : rows) {
+            (dimensions.productIds.containsKey(row.brandId()) ? updates : inserts).add(row);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, inserts, Math.max(inserts.size(), 1), (ps, row) -> {
+            ps.setLong(1, row.brandId());
+            ps.setString(2, row.brandName());
+            ps.setString(3, row.slug());
+            ps.setLong(4, dimensions.categoryId);
+            setLong(ps, 5, dimensions.medicineTypes.get(row.type()));
+            setLong(ps, 6, dimensions.manufacturers.get(row.manufacturer()));
+            setLong(ps, 7, dimensions.dosageForms.get(row.dosageForm()));
+            setLong(ps, 8, dimensions.generics.get(row.generic()));
+            ps.setString(9, emptyToNull(row.strength()));
+            ps.setString(10, row.contentHash());
+            ps.setTimestamp(11, now);
+            ps.setTimestamp(12, now);
+            ps.setString(13, auditor);
+            ps.setString(14, auditor);
+        });
+
+        jdbcTemplate.batchUpdate(UPDATE_PRODUCT_SQL, updates, Math.max(updates.size(), 1), (ps, row) -> {
+            ps.setString(1, row.brandName());
+            ps.setString(2, row.slug());
+            ps.setLong(3, dimensions.categoryId);
+            setLong(ps, 4, dimensions.medicineTypes.get(row.type()));
+            setLong(ps, 5, dimensions.manufacturers.get(row.manufacturer()));
+            setLong(ps, 6, dimensions.dosageForms.get(row.dosageForm()));
+            setLong(ps, 7, dimensions.generics.get(row.generic()));
+            ps.setString(8, emptyToNull(row.strength()));
+            ps.setString(9, row.contentHash());
+            ps.setTimestamp(10, now);
+            ps.setString(11, auditor);
+            ps.setLong(12, dimensions.productIds.get(row.brandId()));
+        });
+
+        Map<Long, Long> insertedIds = findProductIds(inserts);
+        Map<Long, List<ExistingPackage>> existingPackages = findActivePackages(updates.stream()
+                .map(row -> dimensions.productIds.get(row.brandId()))
+                .toArray(Long[]::new));
+
+        List<PackageRow> newPackages = new ArrayList<>();
+        List<PackageRow> changedPackages = new ArrayList<>();
+        List<Long> removedPackageIds = new ArrayList<>();
+        for (MedicineRow row : rows) {
+            Long productId = insertedIds.getOrDefault(row.brandId(), dimensions.productIds.get(row.brandId()));
+            List<ExistingPackage> current = existingPackages.getOrDefault(productId, new ArrayList<>());
+            boolean single = row.packages().size() == 1;
+            for (PackageInfo pkg : row.packages()) {
+                ExistingPackage match = takeByDescription(current, pkg.description());
+                if (match != null) {
+                    changedPackages.add(new PackageRow(match.id(), productId, pkg, single));
+                } else {
+                    newPackages.add(new PackageRow(null, productId, pkg, single));
+                }
+            }
+            current.forEach(stale -> removedPackageIds.add(stale.id()));
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PACKAGE_SQL, newPackages, Math.max(newPackages.size(), 1), (ps, pkg) -> {
+            ps.setLong(1, pkg.productId());
+            ps.setString(2, pkg.info().description());
+            ps.setString(3, pkg.info().size());
+            ps.setBigDecimal(4, pkg.info().unitPrice());
+            ps.setObject(5, pkg.info().quantity(), Types.INTEGER);
+            ps.setString(6, pkg.info().unit());
+            ps.setBoolean(7, pkg.isDefault());
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, now);
+            ps.setString(10, auditor);
+            ps.setString(11, auditor);
+        });
+
+        jdbcTemplate.batchUpdate(UPDATE_PACKAGE_SQL, changedPackages, Math.max(changedPackages.size(), 1), (ps, pkg) -> {
+            ps.setString(1, pkg.info().size());
+            ps.setBigDecimal(2, pkg.info().unitPrice());
+            ps.setObject(3, pkg.info().quantity(), Types.INTEGER);
+            ps.setString(4, pkg.info().unit());
+            ps.setBoolean(5, pkg.isDefault());
+            ps.setTimestamp(6, now);
+            ps.setString(7, auditor);
+            ps.setLong(8, pkg.id());
+        });
+
+        if (!removedPackageIds.isEmpty()) {
+            Long[] ids = removedPackageIds.toArray(Long[]::new);
+            jdbcTemplate.update(DEACTIVATE_PACKAGES_SQL, ps -> {
+                ps.setTimestamp(1, now);
+                ps.setString(2, auditor);
+                ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids));
+            });
+        }
+
+        return new ChunkResult(insertedIds, inserts.size(), updates.size(), removedPackageIds.size());
+    }
+
+    /**
+     * Deactivates the imported products whose brand id was not part of a complete import file.
+     * Their hash is cleared so that they are written, and reactivated, if they come back later.
+     *
+     * @return the number of products deactivated
+     */
+    public int deactivateMissingProducts(Dimensions dimensions, Collection<Long> seenBrandIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long[] brandIds = seenBrandIds.toArray(Long[]::new);
+        return jdbcTemplate.update(DEACTIVATE_MISSING_PRODUCTS_SQL, ps -> {
+            ps.setTimestamp(1, now);
+            ps.setString(2, dimensions.auditor);
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", brandIds));
+        });
+    }
+
+    private Map<Long, List<ExistingPackage>> findActivePackages(Long[] productIds) {
+        Map<Long, List<ExistingPackage>> packages = new HashMap<>();
+        if (productIds.length == 0) {
+            return packages;
+        }
+        jdbcTemplate.query("SELECT product_id, id, package_description FROM product_package " +
+                        "WHERE is_active = true AND product_id = ANY (?) ORDER BY id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds)),
+                (RowCallbackHandler) rs -> packages.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                        .add(new ExistingPackage(rs.getLong(2), rs.getString(3))));
+        return packages;
+    }
+
+    /**
+     * Removes and returns the first package with the given description. Packages duplicated by
+     * earlier append-only imports are left in the list and end up deactivated.
+     */
+    private static ExistingPackage takeByDescription(List<ExistingPackage> packages, String description) {
+        for (Iterator<ExistingPackage> it = packages.iterator(); it.hasNext(); ) {
+            ExistingPackage pkg = it.next();
+            if (Objects.equals(pkg.description(), description)) {
+                it.remove();
+                return pkg;
+            }
+        }
+        return null;
+    }
+
+    private Map<Long, Long> findProductIds(List<MedicineRow> rows) {
+        Map<Long, Long> ids = new HashMap<>();
+        if (rows.isEmpty()) {
+            return ids;
+        }
+        Long[] brandIds = rows.stream().map(MedicineRow::brandId).toArray(Long[]::new);
+        jdbcTemplate.query("SELECT brand_id, id FROM product WHERE brand_id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", brandIds)),
+                (RowCallbackHandler) rs -> ids.put(rs.getLong(1), rs.getLong(2)));
+        return ids;
+    }
+
+    private void loadNames(String sql, Map<String, Long> target) {
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> target.put(rs.getString(1), rs.getLong(2)));
+    }
+
+    /**
+     * Adds the id of {@code name} to {@code names}, creating the row first if needed. The database
+     * round trip runs outside the map, so other workers are never blocked on it.
+     */
+    private static void resolve(Map<String, Long> names, String name, Function<String, Long> creator) {
+        if (!name.isEmpty() && !names.containsKey(name)) {
+            names.putIfAbsent(name, creator.apply(name));
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        ps.setObject(index, value, Types.BIGINT);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private record PackageRow(Long id, Long productId, PackageInfo info, boolean isDefault) {
+    }
+
+    private record ExistingPackage(Long id, String description) {
+    }
+
+    /**
+     * Outcome of writing one chunk.
+     */
+    public record ChunkResult(Map<Long, Long> insertedIds, int inserted, int updated, int packagesRemoved) {
+    }
+
+    /**
+     * Preloaded lookup state for one import run, shared by all import workers.
+     */
+    public static class Dimensions {
+        private final Long categoryId;
+        private final String auditor;
+        private final Map<String, Long> medicineTypes = new ConcurrentHashMap<>();
+        private final Map<String, Long> manufacturers = new ConcurrentHashMap<>();
+        private final Map<String, Long> dosageForms = new ConcurrentHashMap<>();
+        private final Map<String, Long> generics = new ConcurrentHashMap<>();
+        private final Map<Long, Long> productIds = new ConcurrentHashMap<>();
+        private final Map<Long, String> productHashes = new ConcurrentHashMap<>();
+
+        Dimensions(Long categoryId, String auditor) {
+            this.categoryId = categoryId;
+            this.auditor = auditor;
+        }
+
+        public void addProductIds(Map<Long, Long> ids) {
+            productIds.putAll(ids);
+        }
+
+        /**
+         * True when the product with this brand id was last written from a row with the same content hash.
+         */
+        public boolean isUnchanged(Long brandId, String contentHash) {
+            return contentHash.equals(productHashes.get(brandId));
+        }
+    }
+}
@@ -1,525 +1,361 @@
 package com.heal.io.service;
 
-import com.heal.io.entity.*;
-import com.heal.io.repository.*;
+import com.heal.io.config.ImportProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MedicineCsvImportService {
 
-    private final ProductRepository productRepository;
-    private final ProductCategoryRepository categoryRepository;
-    private final ManufacturerRepository manufacturerRepository;
-    private final DosageFormRepository dosageFormRepository;
-    private final GenericRepository genericRepository;
-    private final MedicineTypeRepository medicineTypeRepository;
-    private final ProductPackageRepository productPackageRepository;
+    private final MedicineBatchWriter batchWriter;
+    private final PackagePriceExtractor packagePriceExtractor;
+    private final MedicineRowValidator rowValidator;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
 
-    // Dosage forms that have unit prices - extract only unit price (1 package info only)
-    private static final Set<String> UNIT_PRICE_DOSAGE_FORMS = Set.of(
-        "Capsule",
-        "Capsule (Controlled Release)",
-        "Capsule (Delayed Release)",
-        "Capsule (Extended Release)",
-        "Capsule (Modified Release)",
-        "Capsule (Sustained Release)",
-        "Capsule (Timed Release)",
-        "Chewable Tablet",
-        "Chewing Gum Tablet",
-        "Dispersible Tablet",
-        "Effervescent Granules",
-        "Effervescent Tablet",
-        "Eye Capsule",
-        "Flash Tablet",
-        "IV Infusion",
-        "IV/SC Injection",
-        "Inhalation Capsule",
-        "Inhaler",
-        "Injection",
-        "Long Acting Tablet",
-        "MUPS Tablet",
-        "OROS Tablet",
-        "Oral Powder",
-        "Oral Soluble Film",
-        "Powder for Suspension",
-        "Retard Tablet",
-        "Sprinkle Capsule",
-        "Sublingual Tablet",
-        "Suppository",
-        "Tablet",
-        "Tablet (Controlled Release)",
-        "Tablet (Delayed Release)",
-        "Tablet (Enteric Coated)",
-        "Tablet (Extended Release)",
-        "Tablet (Immediate Release)",
-        "Tablet (Modified Release)",
-        "Tablet (Prolonged Release)",
-        "Tablet (Sustained Release)",
-        "Transdermal Patch",
-        "Vaginal Gel",
-        "Vaginal Pessary",
-        "Vaginal Suppository",
-        "Vaginal Tablet"
-    );
-
-    @Transactional
     public ImportResult importMedicines(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return importMedicines(in, ImportMode.FULL, ImportProgressListener.NONE, ImportReport.discard());
+        } catch (IOException e) {
+            log.error("Error reading uploaded CSV: {}", e.getMessage(), e);
+            ImportResult result = new ImportResult();
+            result.setError("Error importing CSV: " + e.getMessage());
+            return result;
+        }
+    }
+    
+    /**
+     * Imports a medicine CSV. Problems with individual rows are written to {@code report}; the
+     * result only keeps counters and a bounded sample of the skipped rows. In
+     * {@link ImportMode#VALIDATE} mode every row is parsed and checked but nothing is written.
+     */
+    public ImportResult importMedicines(InputStream in, ImportMode mode, ImportProgressListener listener,
+                                       ImportReport report) {
         ImportResult result = new ImportResult();
+        long started = System.nanoTime();
         
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        try (CsvTokenizer csv = new CsvTokenizer(
+                new InputStreamReader(new ProgressInputStream(in, listener), StandardCharsets.UTF_8))) {
             
-            String line = reader.readLine(); // Skip header
-            if (line == null) {
+            if (!csv.next()) { // Skip header
                 result.setError("CSV file is empty");
                 return result;
             }
             
-            // Ensure Medicine category exists
-            ProductCategory medicineCategory = categoryRepository.findByName("Medicine")
-                    .orElseGet(() -> {
-                        ProductCategory cat = ProductCategory.builder()
-                                .name("Medicine")
-                                .description("Pharmaceutical medicines")
-                                .build();
-                        return categoryRepository.save(cat);
-                    });
+            MedicineBatchWriter.Dimensions dimensions = mode == ImportMode.VALIDATE ? null : batchWriter.prepare();
+            int batchSize = Math.max(importProperties.getBatchSize(), 1);
+            List<MedicineRow> chunk = new ArrayList<>(batchSize);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
             
-            int lineNumber = 1;
-            Set<String> processedBrandIds = new HashSet<>();
+            Set<Long> processedBrandIds = new HashSet<>();
             
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] values = parseCsvLine(line);
-                    
-                    if (values.length < 9) {
-                        result.addSkipped("Line " + lineNumber + ": Insufficient columns");
-                        continue;
+            try (ChunkDispatcher dispatcher = new ChunkDispatcher(importProperties.getParallelism())) {
+                while (csv.next()) {
+                    if (listener.isCancelled()) {
+                        break;
                     }
+                    int lineNumber = csv.getLineNumber();
+                    listener.onRowRead();
+                    String brandIdStr = null;
+                    try {
+                        int columns = csv.getFieldCount();
+                        if (columns < 9) {
+                            skip(result, listener, report, lineNumber, null, "Insufficient columns");
+                            continue;
+                        }
                     
-                    String brandIdStr = values[0].trim();
-                    if (brandIdStr.isEmpty() || processedBrandIds.contains(brandIdStr)) {
-                        continue; // Skip duplicates
-                    }
-                    processedBrandIds.add(brandIdStr);
-                    
-                    Long brandId = Long.parseLong(brandIdStr);
-                    String brandName = values[1].trim();
-                    String type = values[2].trim();
-                    String slug = values[3].trim();
-                    String dosageFormName = values[4].trim();
-                    String genericName = values[5].trim();
-                    String strength = values[6].trim();
-                    String manufacturerName = values[7].trim();
-                    String packageContainer = values.length > 8 ? values[8].trim() : "";
-                    String packageSize = values.length > 9 ? values[9].trim() : "";
+                        brandIdStr = csv.trimmedField(0);
+                        if (brandIdStr.isEmpty()) {
+                            report.warning(lineNumber, null, "Missing brand id, row ignored");
+                            continue;
+                        }
+                        Long brandId;
+                        try {
+                            brandId = Long.parseLong(brandIdStr);
+                        } catch (NumberFormatException e) {
+                            skip(result, listener, report, lineNumber, brandIdStr, "Invalid brand id '" + brandIdStr + "'");
+                            continue;
+                        }
+                        if (!processedBrandIds.add(brandId)) {
+                            report.warning(lineNumber, brandIdStr, "Duplicate brand id, row ignored");
+                            continue;
+                        }
                     
-                    // Get or create Medicine Type
-                    MedicineType medicineType = null;
-                    if (!type.isEmpty()) {
-                        medicineType = medicineTypeRepository.findByName(type)
-                                .orElseGet(() -> {
-                                    MedicineType mt = MedicineType.builder()
-                                            .name(type)
-                                            .build();
-                                    return medicineTypeRepository.save(mt);
-                                });
-                    }
+                        String contentHash = fingerprint(digest, csv);
+                        if (mode == ImportMode.INCREMENTAL && dimensions.isUnchanged(brandId, contentHash)) {
+                            result.incrementUnchanged();
+                            listener.onUnchanged();
+                            continue;
+                        }
                     
-                    // Get or create Manufacturer
-                    Manufacturer manufacturer = null;
-                    if (!manufacturerName.isEmpty()) {
-                        manufacturer = manufacturerRepository.findByName(manufacturerName)
-                                .orElseGet(() -> {
-                                    Manufacturer mfg = Manufacturer.builder()
-                                            .name(manufacturerName)
-                                            .build();
-                                    return manufacturerRepository.save(mfg);
-                                });
-                    }
+                        String dosageFormName = csv.trimmedField(4);
+                        String packageContainer = csv.trimmedField(8);
+                        String packageSize = columns > 9 ? csv.trimmedField(9) : "";
                     
-                    // Get or create Dosage Form
-                    DosageForm dosageForm = null;
-                    if (!dosageFormName.isEmpty()) {
-                        dosageForm = dosageFormRepository.findByName(dosageFormName)
-                                .orElseGet(() -> {
-                                    DosageForm df = DosageForm.builder()
-                                            .name(dosageFormName)
-                                            .slug(slug)
-                                            .build();
-                                    return dosageFormRepository.save(df);
-                                });
-                    }
+                        List<PackageInfo> packages = packageContainer.isEmpty()
+                                ? List.of()
+                                : packagePriceExtractor.extract(packageContainer, packageSize, dosageFormName);
                     
-                    // Get or create Generic
-                    Generic generic = null;
-                    if (!genericName.isEmpty()) {
-                        generic = genericRepository.findByName(genericName)
-                                .orElseGet(() -> {
-                                    Generic gen = Generic.builder()
-                                            .name(genericName)
-                                            .build();
-                                    return genericRepository.save(gen);
-                                });
-                    }
+                        MedicineRow row = new MedicineRow(lineNumber, brandId,
+                                csv.trimmedField(1), csv.trimmedField(2), csv.trimmedField(3), dosageFormName,
+                                csv.trimmedField(5), csv.trimmedField(6), csv.trimmedField(7), packages, contentHash);
                     
-                    // Create or update Product
-                    Product product = productRepository.findByBrandId(brandId)
-                            .orElse(Product.builder()
-                                    .brandId(brandId)
-                                    .name(brandName)
-                                    .slug(slug)
-                                    .productCategory(medicineCategory)
-                                    .medicineType(medicineType)
-                                    .manufacturer(manufacturer)
-                                    .dosageForm(dosageForm)
-                                    .generic(generic)
-                                    .strength(strength.isEmpty() ? null : strength)
-                                    .requiresPrescription(false) // Default: prescription not needed
-                                    .build());
+                        String error = rowValidator.validate(row, report);
+                        if (error != null) {
+                            reject(result, listener, lineNumber, error);
+                        } else if (mode == ImportMode.VALIDATE) {
+                            result.incrementValid();
+                            listener.onValidated();
+                        } else {
+                            chunk.add(row);
+                        }
                     
-                    product.setName(brandName);
-                    product.setSlug(slug);
-                    product.setProductCategory(medicineCategory);
-                    product.setMedicineType(medicineType);
-                    product.setManufacturer(manufacturer);
-                    product.setDosageForm(dosageForm);
-                    product.setGeneric(generic);
-                    product.setStrength(strength.isEmpty() ? null : strength);
-                    // Ensure requiresPrescription is set (default to false if null)
-                    if (product.getRequiresPrescription() == null) {
-                        product.setRequiresPrescription(false);
+                    } catch (Exception e) {
+                        log.error("Error processing line {}: {}", lineNumber, e.getMessage());
+                        skip(result, listener, report, lineNumber, brandIdStr, e.getMessage());
                     }
-                    
-                    product = productRepository.save(product);
-                    result.incrementImported();
-                    
-                    // Parse and create Product Packages
-                    if (!packageContainer.isEmpty()) {
-                        List<PackageInfo> packages = parsePackageInfo(packageContainer, packageSize, dosageFormName);
-                        for (PackageInfo pkgInfo : packages) {
-                            ProductPackage productPackage = ProductPackage.builder()
-                                    .product(product)
-                                    .packageDescription(pkgInfo.description)
-                                    .packageSize(pkgInfo.size)
-                                    .unitPrice(pkgInfo.unitPrice)
-                                    .quantityPerPackage(pkgInfo.quantity)
-                                    .unitOfMeasure(pkgInfo.unit)
-                                    .isDefault(packages.size() == 1)
-                                    .build();
-                            productPackageRepository.save(productPackage);
-                        }
+                
+                    if (chunk.size() >= batchSize) {
+                        List<MedicineRow> full = chunk;
+                        dispatcher.submit(() -> writeChunk(dimensions, full, result, listener, report));
+                        chunk = new ArrayList<>(batchSize);
                     }
-                    
-                } catch (Exception e) {
-                    log.error("Error processing line {}: {}", lineNumber, e.getMessage());
-                    result.addSkipped("Line " + lineNumber + ": " + e.getMessage());
                 }
+            
+                if (!chunk.isEmpty() && !listener.isCancelled()) {
+                    List<MedicineRow> last = chunk;
+                    dispatcher.submit(() -> writeChunk(dimensions, last, result, listener, report));
+                }
+            } // waits for all chunks to be written
+            
+            result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+            if (listener.isCancelled()) {
+                result.setError(mode == ImportMode.VALIDATE
+                        ? "Validation cancelled after " + result.getValid() + " valid rows"
+                        : "Import cancelled after " + result.getImported() + " products were imported");
+                return result;
+            }
+            if (mode == ImportMode.VALIDATE) {
+                result.setSuccess(true);
+                result.setMessage("Validation finished in " + String.format("%.1f", result.getElapsedMillis() / 1000.0) +
+                        "s: " + result.getValid() + " valid rows, " + result.getSkippedCount() + " rows with errors, " +
+                        report.getWarnings() + " warnings. Nothing was written to the database.");
+                log.info("Medicine validation finished: {} valid, {} errors, {} warnings, {} ms",
+                        result.getValid(), result.getSkippedCount(), report.getWarnings(), result.getElapsedMillis());
+                return result;
             }
             
+            String note = "";
+            if (mode == ImportMode.INCREMENTAL) {
+                if (result.getSkippedCount() == 0) {
+                    result.setRemoved(batchWriter.deactivateMissingProducts(dimensions, processedBrandIds));
+                } else {
+                    note = " Products missing from the file were not deactivated because " +
+                            result.getSkippedCount() + " rows were skipped.";
+                }
+            }
+            result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
             result.setSuccess(true);
-            result.setMessage("Successfully imported " + result.getImported() + " products");
+            result.setMessage("Successfully imported " + result.getImported() + " products (" +
+                    result.getInserted() + " inserted, " + result.getUpdated() + " updated, " +
+                    result.getUnchanged() + " unchanged, " + result.getRemoved() + " removed) in " +
+                    String.format("%.1f", result.getElapsedMillis() / 1000.0) + "s (" +
+                    result.getRowsPerSecond() + " rows/s)." + note);
+            log.info("Medicine {} import finished: {} inserted, {} updated, {} unchanged, {} removed, " +
+                            "{} packages retired, {} skipped, {} ms",
+                    mode, result.getInserted(), result.getUpdated(), result.getUnchanged(), result.getRemoved(),
+                    result.getPackagesRemoved(), result.getSkippedCount(), result.getElapsedMillis());
             
         } catch (Exception e) {
             log.error("Error importing CSV: {}", e.getMessage(), e);
             result.setError("Error importing CSV: " + e.getMessage());
         }
         
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
         return result;
     }
     
-    private String[] parseCsvLine(String line) {
-        List<String> values = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder current = new StringBuilder();
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                values.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
+    /**
+     * Writes and commits one chunk. If the batch fails, the chunk is replayed row by row in
+     * separate transactions so that a single bad row only skips itself.
+     */
+    private void writeChunk(MedicineBatchWriter.Dimensions dimensions, List<MedicineRow> chunk,
+                            ImportResult result, ImportProgressListener listener, ImportReport report) {
+        try {
+            batchWriter.createMissingDimensions(dimensions, chunk);
+            MedicineBatchWriter.ChunkResult written = transactionTemplate.execute(status -> batchWriter.write(dimensions, chunk));
+            dimensions.addProductIds(written.insertedIds());
+            result.addWritten(written);
+            listener.onImported(chunk.size());
+        } catch (Exception chunkError) {
+            log.warn("Batch of {} rows failed, retrying row by row: {}", chunk.size(), chunkError.getMessage());
+            for (MedicineRow row : chunk) {
+                try {
+                    batchWriter.createMissingDimensions(dimensions, List.of(row));
+                    MedicineBatchWriter.ChunkResult written = transactionTemplate.execute(status -> batchWriter.write(dimensions, List.of(row)));
+                    dimensions.addProductIds(written.insertedIds());
+                    result.addWritten(written);
+                    listener.onImported(1);
+                } catch (Exception e) {
+                    log.error("Error processing line {}: {}", row.lineNumber(), e.getMessage());
+                    skip(result, listener, report, row.lineNumber(), String.valueOf(row.brandId()), e.getMessage());
+                }
             }
         }
-        values.add(current.toString());
-        
-        return values.toArray(new String[0]);
     }
     
-    private List<PackageInfo> parsePackageInfo(String packageContainer, String packageSize, String dosageForm) {
-        List<PackageInfo> packages = new ArrayList<>();
-        Set<String> seenDescriptions = new HashSet<>(); // To avoid duplicates
-        
-        if (packageContainer == null || packageContainer.trim().isEmpty()) {
-            return packages;
-        }
-        
-        // Check if this dosage form should only extract unit price
-        boolean isUnitPriceDosageForm = UNIT_PRICE_DOSAGE_FORMS.contains(dosageForm);
-        
-        // Clean up the package container string - remove extra commas and parentheses
-        String cleaned = packageContainer.replaceAll(",\\s*,+", ",").trim();
-        
-        // Pattern 1: "Unit Price: ৳ X.XX" - explicit unit price entry
-        Pattern unitPricePattern = Pattern.compile("Unit\\s+Price:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
-        Matcher unitPriceMatcher = unitPricePattern.matcher(cleaned);
+    /**
+     * Hands chunks to up to {@code parallelism} concurrent writers. The reader blocks while all
+     * writers are busy, so at most {@code parallelism + 1} chunks are held in memory. With a
+     * parallelism of 1 chunks are written inline on the reading thread.
+     */
+    private static class ChunkDispatcher implements AutoCloseable {
+        private final Semaphore permits;
+        private final ExecutorService executor;
         
-        BigDecimal unitPriceValue = null;
-        while (unitPriceMatcher.find()) {
-            String priceStr = unitPriceMatcher.group(1).replace(",", "");
-            try {
-                unitPriceValue = new BigDecimal(priceStr);
-                // Create a unit price entry with quantity = 1
-                String description = "Unit Price";
-                if (!seenDescriptions.contains(description)) {
-                    PackageInfo pkgInfo = new PackageInfo();
-                    pkgInfo.description = description;
-                    pkgInfo.size = packageSize;
-                    pkgInfo.unitPrice = unitPriceValue;
-                    pkgInfo.quantity = 1;
-                    pkgInfo.unit = "pieces";
-                    packages.add(pkgInfo);
-                    seenDescriptions.add(description);
-                }
-            } catch (Exception e) {
-                log.warn("Could not parse unit price: {}", priceStr);
-            }
+        ChunkDispatcher(int parallelism) {
+            this.permits = new Semaphore(Math.max(parallelism, 1));
+            this.executor = parallelism > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
         }
         
-        // For unit price dosage forms, only extract unit price and skip pack prices
-        if (isUnitPriceDosageForm) {
-            // If we found a unit price, return only that (1 package info only)
-            if (!packages.isEmpty()) {
-                return packages;
+        void submit(Runnable chunkWrite) throws InterruptedException {
+            if (executor == null) {
+                chunkWrite.run();
+                return;
             }
-            // If no unit price found but it's a unit price dosage form, try to extract from pack price
-            Pattern packPattern = Pattern.compile("\\(\\s*(\\d+)\\s*['']?s?\\s*pack:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)\\s*\\)", Pattern.CASE_INSENSITIVE);
-            Matcher packMatcher = packPattern.matcher(cleaned);
-            
-            if (packMatcher.find()) {
-                int quantity = Integer.parseInt(packMatcher.group(1));
-                String priceStr = packMatcher.group(2).replace(",", "");
-                
+            permits.acquire();
+            executor.execute(() -> {
                 try {
-                    BigDecimal packagePrice = new BigDecimal(priceStr);
-                    BigDecimal calculatedUnitPrice = packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
-                    
-                    PackageInfo pkgInfo = new PackageInfo();
-                    pkgInfo.description = "Unit Price";
-                    pkgInfo.size = packageSize;
-                    pkgInfo.unitPrice = calculatedUnitPrice;
-                    pkgInfo.quantity = 1;
-                    pkgInfo.unit = "pieces";
-                    packages.add(pkgInfo);
-                    return packages;
-                } catch (Exception e) {
-                    log.warn("Could not parse pack price for unit price dosage form: {}", priceStr);
+                    chunkWrite.run();
+                } finally {
+                    permits.release();
                 }
-            }
-            return packages;
+            });
         }
         
-        // Pattern 2: "(N's pack: ৳ X.XX)" - pack entries (only for non-unit-price dosage forms)
-        Pattern packPattern = Pattern.compile("\\(\\s*(\\d+)\\s*['']?s?\\s*pack:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)\\s*\\)", Pattern.CASE_INSENSITIVE);
-        Matcher packMatcher = packPattern.matcher(cleaned);
-        
-        while (packMatcher.find()) {
-            int quantity = Integer.parseInt(packMatcher.group(1));
-            String priceStr = packMatcher.group(2).replace(",", "");
-            
-            try {
-                BigDecimal packagePrice = new BigDecimal(priceStr);
-                BigDecimal calculatedUnitPrice = unitPriceValue != null ? unitPriceValue : 
-                    packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
-                
-                String description = quantity + "'s pack";
-                if (!seenDescriptions.contains(description)) {
-                    PackageInfo pkgInfo = new PackageInfo();
-                    pkgInfo.description = description;
-                    pkgInfo.size = packageSize;
-                    pkgInfo.unitPrice = calculatedUnitPrice;
-                    pkgInfo.quantity = quantity;
-                    pkgInfo.unit = "pack";
-                    packages.add(pkgInfo);
-                    seenDescriptions.add(description);
-                }
-            } catch (Exception e) {
-                log.warn("Could not parse pack price: {}", priceStr);
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.close();
             }
         }
-        
-        // Pattern 3: Volume/weight based pricing - "N ml bottle: ৳ X.XX" or "N gm container: ৳ X.XX"
-        // For non-unit-price dosage forms, quantity should be 1 (1 quantity)
-        Pattern volumePattern = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ml|gm|g|mg)\\s+(?:bottle|container|vial|tube|sachet|drop|sachet):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
-        Matcher volumeMatcher = volumePattern.matcher(cleaned);
-        
-        while (volumeMatcher.find()) {
-            String quantityStr = volumeMatcher.group(1);
-            String unitType = volumeMatcher.group(2).toLowerCase();
-            String priceStr = volumeMatcher.group(3).replace(",", "");
-            
-            try {
-                BigDecimal packagePrice = new BigDecimal(priceStr);
-                // For non-unit-price dosage forms, quantity is always 1 (1 quantity)
-                // Unit price = package price (since quantity is 1)
-                BigDecimal calculatedUnitPrice = packagePrice;
-                
-                String unit = unitType.equals("ml") ? "ml" : 
-                             (unitType.equals("gm") || unitType.equals("g")) ? "gm" : "mg";
-                String containerType = cleaned.contains("bottle") ? "bottle" :
-                                      cleaned.contains("container") ? "container" :
-                                      cleaned.contains("vial") ? "vial" :
-                                      cleaned.contains("tube") ? "tube" :
-                                      cleaned.contains("sachet") ? "sachet" :
-                                      cleaned.contains("drop") ? "drop" : "unit";
-                
-                String description = quantityStr + " " + unit + " " + containerType;
-                if (!seenDescriptions.contains(description)) {
-                    PackageInfo pkgInfo = new PackageInfo();
-                    pkgInfo.description = description;
-                    pkgInfo.size = packageSize;
-                    pkgInfo.unitPrice = calculatedUnitPrice;
-                    pkgInfo.quantity = 1; // Always 1 quantity for non-unit-price dosage forms
-                    pkgInfo.unit = unit;
-                    packages.add(pkgInfo);
-                    seenDescriptions.add(description);
-                }
-            } catch (Exception e) {
-                log.warn("Could not parse volume price: {}", priceStr);
-            }
+    }
+    
+    /**
+     * SHA-256 over every column that ends up in the product or its packages, so that any change to
+     * them, including the package text, makes the row count as changed.
+     */
+    private static String fingerprint(MessageDigest digest, CsvTokenizer csv) {
+        for (int i = 1; i < csv.getFieldCount(); i++) {
+            digest.update(csv.trimmedField(i).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x1f);
         }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private void skip(ImportResult result, ImportProgressListener listener, ImportReport report,
+                      int lineNumber, String brandId, String reason) {
+        report.error(lineNumber, brandId, reason);
+        reject(result, listener, lineNumber, reason);
+    }
+    
+    /**
+     * Counts a skipped row whose error has already been written to the report.
+     */
+    private void reject(ImportResult result, ImportProgressListener listener, int lineNumber, String reason) {
+        result.addSkipped("Line " + lineNumber + ": " + reason);
+        listener.onSkipped();
+    }
+    
+    /**
+     * Reports the number of bytes consumed so that progress and ETA can be derived from the file size.
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final ImportProgressListener listener;
         
-        // Pattern 4: Generic pattern for other formats - "description: ৳ X.XX"
-        // Only if we haven't matched anything yet
-        if (packages.isEmpty()) {
-            Pattern genericPattern = Pattern.compile("([^:]+?):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)");
-            Matcher genericMatcher = genericPattern.matcher(cleaned);
-            
-            while (genericMatcher.find()) {
-                String description = genericMatcher.group(1).trim();
-                String priceStr = genericMatcher.group(2).replace(",", "");
-                
-                // Skip if it's already been processed by other patterns
-                if (description.toLowerCase().contains("unit price") || 
-                    description.toLowerCase().contains("pack") ||
-                    description.matches(".*\\d+\\s*(ml|gm|g|mg).*")) {
-                    continue;
-                }
-                
-                try {
-                    BigDecimal price = new BigDecimal(priceStr);
-                    String unit = extractUnit(description);
-                    
-                    // For non-unit-price dosage forms, quantity is always 1
-                    // For unit-price dosage forms, extract quantity if available, otherwise default to 1
-                    Integer quantity;
-                    if (isUnitPriceDosageForm) {
-                        Integer extractedQuantity = extractQuantity(description);
-                        quantity = extractedQuantity != null ? extractedQuantity : 1;
-                    } else {
-                        // For non-unit-price dosage forms, always set quantity to 1
-                        quantity = 1;
-                    }
-                    
-                    BigDecimal calculatedUnitPrice = quantity > 1 ? 
-                        price.divide(new BigDecimal(quantity), 4, RoundingMode.HALF_UP) : price;
-                    
-                    if (!seenDescriptions.contains(description)) {
-                        PackageInfo pkgInfo = new PackageInfo();
-                        pkgInfo.description = description;
-                        pkgInfo.size = packageSize;
-                        pkgInfo.unitPrice = calculatedUnitPrice;
-                        pkgInfo.quantity = quantity;
-                        pkgInfo.unit = unit;
-                        packages.add(pkgInfo);
-                        seenDescriptions.add(description);
-                    }
-                } catch (Exception e) {
-                    log.warn("Could not parse generic price from: {}", description);
-                }
-            }
+        ProgressInputStream(InputStream in, ImportProgressListener listener) {
+            super(in);
+            this.listener = listener;
         }
         
-        // If still no packages found, create a simple entry
-        if (packages.isEmpty() && !packageContainer.trim().isEmpty() && 
-            !packageContainer.equalsIgnoreCase("Price Unavailable")) {
-            PackageInfo pkgInfo = new PackageInfo();
-            pkgInfo.description = packageContainer.trim();
-            pkgInfo.size = packageSize;
-            packages.add(pkgInfo);
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                listener.onBytesRead(1);
+            }
+            return b;
         }
         
-        return packages;
-    }
-    
-    private Integer extractQuantity(String text) {
-        // Pattern for "N's pack" or "N pack" or "N ml" etc.
-        Pattern pattern = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*['']?s?\\s*(?:pack|tablet|capsule|ml|gm|g|mg|vial|bottle|container)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(text);
-        if (matcher.find()) {
-            try {
-                return (int) Double.parseDouble(matcher.group(1));
-            } catch (NumberFormatException e) {
-                return null;
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                listener.onBytesRead(n);
             }
+            return n;
         }
-        return null;
-    }
-    
-    private String extractUnit(String text) {
-        String lower = text.toLowerCase();
-        if (lower.contains("ml")) return "ml";
-        if (lower.contains("gm") || (lower.contains("g") && !lower.contains("mg"))) return "gm";
-        if (lower.contains("mg")) return "mg";
-        if (lower.contains("pack")) return "pack";
-        if (lower.contains("tablet")) return "tablets";
-        if (lower.contains("capsule")) return "capsules";
-        if (lower.contains("vial")) return "vial";
-        if (lower.contains("bottle")) return "bottle";
-        if (lower.contains("container")) return "container";
-        return "pieces";
-    }
-    
-    private static class PackageInfo {
-        String description;
-        String size;
-        BigDecimal unitPrice;
-        Integer quantity;
-        String unit;
     }
     
     public static class ImportResult {
+        /** Skipped rows kept for display; the full list is in the import report. */
+        public static final int SKIPPED_SAMPLE_SIZE = 100;
+        
         private boolean success = false;
         private String message = "";
         private String error = "";
         private int imported = 0;
+        private int inserted = 0;
+        private int updated = 0;
+        private int unchanged = 0;
+        private int removed = 0;
+        private int packagesRemoved = 0;
+        private int valid = 0;
+        private int skippedCount = 0;
+        private long elapsedMillis = 0;
         private List<String> skipped = new ArrayList<>();
         
-        public void incrementImported() {
-            imported++;
+        public synchronized void addWritten(MedicineBatchWriter.ChunkResult written) {
+            inserted += written.inserted();
+            updated += written.updated();
+            packagesRemoved += written.packagesRemoved();
+            imported += written.inserted() + written.updated();
+        }
+        
+        public synchronized void incrementUnchanged() {
+            unchanged++;
+        }
+        
+        public synchronized void incrementValid() {
+            valid++;
         }
         
-        public void addSkipped(String reason) {
-            skipped.add(reason);
+        public long getRowsPerSecond() {
+            long rows = imported + unchanged + valid;
+            return elapsedMillis > 0 ? rows * 1000L / elapsedMillis : rows;
+        }
+        
+        public synchronized void addSkipped(String reason) {
+            skippedCount++;
+            if (skipped.size() < SKIPPED_SAMPLE_SIZE) {
+                skipped.add(reason);
+            }
         }
         
         // Getters and Setters
@@ -531,6 +367,16 @@ public class MedicineCsvImportService {
         public void setError(String error) { this.error = error; }
         public int getImported() { return imported; }
         public void setImported(int imported) { this.imported = imported; }
+        public int getInserted() { return inserted; }
+        public int getUpdated() { return updated; }
+        public int getUnchanged() { return unchanged; }
+        public int getRemoved() { return removed; }
+        public void setRemoved(int removed) { this.removed = removed; }
+        public int getPackagesRemoved() { return packagesRemoved; }
+        public int getValid() { return valid; }
+        public synchronized int getSkippedCount() { return skippedCount; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
         public List<String> getSkipped() { return skipped; }
         public void setSkipped(List<String> skipped) { this.skipped = skipped; }
     }
@@ -0,0 +1,20 @@
+package com.heal.io.service;
+
+import java.util.List;
+
+/**
+ * One parsed line of the medicine CSV, ready to be written by {@link MedicineBatchWriter}.
+ */
+public record MedicineRow(
+        int lineNumber,
+        Long brandId,
+        String brandName,
+        String type,
+        String slug,
+        String dosageForm,
+        String generic,
+        String strength,
+        String manufacturer,
+        List<PackageInfo> packages,
+        String contentHash) {
+}
@@ -0,0 +1,93 @@
+package com.heal.io.service;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Checks a parsed medicine row against the constraints of the product tables, so that rows that
+ * could not be written are rejected before they reach the database. Needs no database access,
+ * which is what makes the validate-only import mode cheap.
+ */
+@Component
+public class MedicineRowValidator {
+
+    // Column sizes of Product, ProductPackage and the dimension entities
+    private static final int NAME_LENGTH = 255;
+    private static final int MEDICINE_TYPE_LENGTH = 50;
+    private static final int DOSAGE_FORM_LENGTH = 100;
+    private static final int GENERIC_LENGTH = 500;
+    private static final int STRENGTH_LENGTH = 200;
+    private static final int PACKAGE_DESCRIPTION_LENGTH = 500;
+    private static final int PACKAGE_SIZE_LENGTH = 200;
+    private static final int UNIT_LENGTH = 50;
+    private static final BigDecimal MAX_UNIT_PRICE = new BigDecimal("99999999.99"); // numeric(10, 2)
+
+    /**
+     * Reports the problems of {@code row} to {@code report}.
+     *
+     * @return the first error, or null when the row can be written
+     */
+    public String validate(MedicineRow row, ImportReport report) {
+        Check check = new Check(row, report);
+        if (row.brandName().isEmpty()) {
+            check.error("Missing brand name");
+        }
+        check.maxLength("Brand name", row.brandName(), NAME_LENGTH);
+        check.maxLength("Slug", row.slug(), NAME_LENGTH);
+        check.maxLength("Type", row.type(), MEDICINE_TYPE_LENGTH);
+        check.maxLength("Dosage form", row.dosageForm(), DOSAGE_FORM_LENGTH);
+        check.maxLength("Generic", row.generic(), GENERIC_LENGTH);
+        check.maxLength("Strength", row.strength(), STRENGTH_LENGTH);
+        check.maxLength("Manufacturer", row.manufacturer(), NAME_LENGTH);
+
+        if (row.generic().isEmpty()) {
+            check.warning("Missing generic");
+        }
+        if (row.manufacturer().isEmpty()) {
+            check.warning("Missing manufacturer");
+        }
+        if (row.packages().isEmpty()) {
+            check.warning("No package information");
+        }
+        for (PackageInfo pkg : row.packages()) {
+            check.maxLength("Package description", pkg.description(), PACKAGE_DESCRIPTION_LENGTH);
+            check.maxLength("Package size", pkg.size(), PACKAGE_SIZE_LENGTH);
+            check.maxLength("Unit of measure", pkg.unit(), UNIT_LENGTH);
+            if (pkg.unitPrice() == null) {
+                check.warning("No price found for package '" + pkg.description() + "'");
+            } else if (pkg.unitPrice().compareTo(MAX_UNIT_PRICE) > 0) {
+                check.error("Unit price " + pkg.unitPrice() + " is too large");
+            }
+        }
+        return check.firstError;
+    }
+
+    private static class Check {
+        private final MedicineRow row;
+        private final ImportReport report;
+        private String firstError;
+
+        Check(MedicineRow row, ImportReport report) {
+            this.row = row;
+            this.report = report;
+        }
+
+        void maxLength(String field, String value, int max) {
+            if (value != null && value.length() > max) {
+                error(field + " is longer than " + max + " characters");
+            }
+        }
+
+        void error(String message) {
+            if (firstError == null) {
+                firstError = message;
+            }
+            report.error(row.lineNumber(), String.valueOf(row.brandId()), message);
+        }
+
+        void warning(String message) {
+            report.warning(row.lineNumber(), String.valueOf(row.brandId()), message);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.heal.io.service;
+
+import java.math.BigDecimal;
+
+/**
+ * A sellable package of a medicine as extracted from the CSV "package container" column.
+ */
+public record PackageInfo(
+        String description,
+        String size,
+        BigDecimal unitPrice,
+        Integer quantity,
+        String unit) {
+}
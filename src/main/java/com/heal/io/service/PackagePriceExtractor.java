@@ -0,0 +1,253 @@
+package com.heal.io.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts package and price records from the "package container" column of the medicine CSV,
+ * e.g. {@code "500 mg vial: ৳ 28.43,(5's pack: ৳ 142.15),"}.
+ * <p>
+ * All patterns are compiled once, strings without a "৳" price skip the regex passes entirely,
+ * and per-row string work (comma cleanup, lower-casing, container detection) is done at most
+ * once. The results are identical to the original per-row implementation.
+ */
+@Component
+@Slf4j
+public class PackagePriceExtractor {
+
+    // Dosage forms that have unit prices - extract only unit price (1 package info only)
+    private static final Set<String> UNIT_PRICE_DOSAGE_FORMS = Set.of(
+        "Capsule",
+        "Capsule (Controlled Release)",
+        "Capsule (Delayed Release)",
+        "Capsule (Extended Release)",
+        "Capsule (Modified Release)",
+        "Capsule (Sustained Release)",
+        "Capsule (Timed Release)",
+        "Chewable Tablet",
+        "Chewing Gum Tablet",
+        "Dispersible Tablet",
+        "Effervescent Granules",
+        "Effervescent Tablet",
+        "Eye Capsule",
+        "Flash Tablet",
+        "IV Infusion",
+        "IV/SC Injection",
+        "Inhalation Capsule",
+        "Inhaler",
+        "Injection",
+        "Long Acting Tablet",
+        "MUPS Tablet",
+        "OROS Tablet",
+        "Oral Powder",
+        "Oral Soluble Film",
+        "Powder for Suspension",
+        "Retard Tablet",
+        "Sprinkle Capsule",
+        "Sublingual Tablet",
+        "Suppository",
+        "Tablet",
+        "Tablet (Controlled Release)",
+        "Tablet (Delayed Release)",
+        "Tablet (Enteric Coated)",
+        "Tablet (Extended Release)",
+        "Tablet (Immediate Release)",
+        "Tablet (Modified Release)",
+        "Tablet (Prolonged Release)",
+        "Tablet (Sustained Release)",
+        "Transdermal Patch",
+        "Vaginal Gel",
+        "Vaginal Pessary",
+        "Vaginal Suppository",
+        "Vaginal Tablet"
+    );
+
+    private static final char TAKA = '৳';
+
+    private static final Pattern REPEATED_COMMAS = Pattern.compile(",\\s*,+");
+
+    // "Unit Price: ৳ X.XX" - explicit unit price entry
+    private static final Pattern UNIT_PRICE = Pattern.compile(
+            "Unit\\s+Price:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+
+    // "(N's pack: ৳ X.XX)" - pack entries
+    private static final Pattern PACK = Pattern.compile(
+            "\\(\\s*(\\d+)\\s*['']?s?\\s*pack:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    // "N ml bottle: ৳ X.XX" or "N gm container: ৳ X.XX" - volume/weight based pricing
+    private static final Pattern VOLUME = Pattern.compile(
+            "(\\d+(?:\\.\\d+)?)\\s*(ml|gm|g|mg)\\s+(?:bottle|container|vial|tube|sachet|drop|sachet):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)",
+            Pattern.CASE_INSENSITIVE);
+
+    // "description: ৳ X.XX" - anything else with a price
+    private static final Pattern DESCRIBED_PRICE = Pattern.compile("([^:]+?):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)");
+
+    private static final Pattern AMOUNT_WITH_UNIT = Pattern.compile(".*\\d+\\s*(ml|gm|g|mg).*");
+
+    public List<PackageInfo> extract(String packageContainer, String packageSize, String dosageForm) {
+        if (packageContainer == null || packageContainer.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Dosage forms sold by the piece only get a unit price (1 package info only)
+        boolean isUnitPriceDosageForm = UNIT_PRICE_DOSAGE_FORMS.contains(dosageForm);
+
+        String cleaned = packageContainer.indexOf(',') >= 0
+                ? REPEATED_COMMAS.matcher(packageContainer).replaceAll(",").trim()
+                : packageContainer.trim();
+
+        List<PackageInfo> packages = cleaned.indexOf(TAKA) >= 0
+                ? extractPrices(cleaned, packageSize, isUnitPriceDosageForm)
+                : new ArrayList<>();
+
+        if (isUnitPriceDosageForm) {
+            return packages;
+        }
+
+        // If still no packages found, create a simple entry
+        if (packages.isEmpty() && !packageContainer.equalsIgnoreCase("Price Unavailable")) {
+            packages.add(new PackageInfo(packageContainer.trim(), packageSize, null, null, null));
+        }
+        return packages;
+    }
+
+    private List<PackageInfo> extractPrices(String cleaned, String packageSize, boolean isUnitPriceDosageForm) {
+        List<PackageInfo> packages = new ArrayList<>();
+        Set<String> seenDescriptions = new HashSet<>(); // To avoid duplicates
+
+        BigDecimal unitPriceValue = null;
+        Matcher unitPriceMatcher = UNIT_PRICE.matcher(cleaned);
+        while (unitPriceMatcher.find()) {
+            String priceStr = stripCommas(unitPriceMatcher.group(1));
+            try {
+                unitPriceValue = new BigDecimal(priceStr);
+                if (seenDescriptions.add("Unit Price")) {
+                    packages.add(new PackageInfo("Unit Price", packageSize, unitPriceValue, 1, "pieces"));
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse unit price: {}", priceStr);
+            }
+        }
+
+        if (isUnitPriceDosageForm) {
+            if (!packages.isEmpty()) {
+                return packages;
+            }
+            // No explicit unit price: derive it from the first pack price
+            Matcher packMatcher = PACK.matcher(cleaned);
+            if (packMatcher.find()) {
+                int quantity = Integer.parseInt(packMatcher.group(1));
+                String priceStr = stripCommas(packMatcher.group(2));
+                try {
+                    BigDecimal packagePrice = new BigDecimal(priceStr);
+                    BigDecimal calculatedUnitPrice = packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
+                    packages.add(new PackageInfo("Unit Price", packageSize, calculatedUnitPrice, 1, "pieces"));
+                } catch (Exception e) {
+                    log.warn("Could not parse pack price for unit price dosage form: {}", priceStr);
+                }
+            }
+            return packages;
+        }
+
+        Matcher packMatcher = PACK.matcher(cleaned);
+        while (packMatcher.find()) {
+            int quantity = Integer.parseInt(packMatcher.group(1));
+            String priceStr = stripCommas(packMatcher.group(2));
+            try {
+                BigDecimal packagePrice = new BigDecimal(priceStr);
+                BigDecimal calculatedUnitPrice = unitPriceValue != null ? unitPriceValue :
+                        packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
+                String description = quantity + "'s pack";
+                if (seenDescriptions.add(description)) {
+                    packages.add(new PackageInfo(description, packageSize, calculatedUnitPrice, quantity, "pack"));
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse pack price: {}", priceStr);
+            }
+        }
+
+        // For non-unit-price dosage forms the quantity is always 1 and the unit price is the package price
+        String containerType = null;
+        Matcher volumeMatcher = VOLUME.matcher(cleaned);
+        while (volumeMatcher.find()) {
+            String quantityStr = volumeMatcher.group(1);
+            String unitType = volumeMatcher.group(2).toLowerCase();
+            String priceStr = stripCommas(volumeMatcher.group(3));
+            try {
+                BigDecimal packagePrice = new BigDecimal(priceStr);
+                String unit = unitType.equals("ml") ? "ml" :
+                        (unitType.equals("gm") || unitType.equals("g")) ? "gm" : "mg";
+                if (containerType == null) {
+                    containerType = containerType(cleaned);
+                }
+                String description = quantityStr + " " + unit + " " + containerType;
+                if (seenDescriptions.add(description)) {
+                    packages.add(new PackageInfo(description, packageSize, packagePrice, 1, unit));
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse volume price: {}", priceStr);
+            }
+        }
+
+        // Generic "description: ৳ X.XX", only if nothing matched yet
+        if (packages.isEmpty()) {
+            Matcher describedMatcher = DESCRIBED_PRICE.matcher(cleaned);
+            while (describedMatcher.find()) {
+                String description = describedMatcher.group(1).trim();
+                String priceStr = stripCommas(describedMatcher.group(2));
+
+                // Skip if it's already been processed by other patterns
+                String lower = description.toLowerCase();
+                if (lower.contains("unit price") || lower.contains("pack")
+                        || AMOUNT_WITH_UNIT.matcher(description).matches()) {
+                    continue;
+                }
+
+                try {
+                    BigDecimal price = new BigDecimal(priceStr);
+                    String unit = extractUnit(lower);
+                    // Unit-price dosage forms returned above, so the quantity is always 1
+                    if (seenDescriptions.add(description)) {
+                        packages.add(new PackageInfo(description, packageSize, price, 1, unit));
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not parse generic price from: {}", description);
+                }
+            }
+        }
+
+        return packages;
+    }
+
+    private static String containerType(String cleaned) {
+        return cleaned.contains("bottle") ? "bottle" :
+                cleaned.contains("container") ? "container" :
+                cleaned.contains("vial") ? "vial" :
+                cleaned.contains("tube") ? "tube" :
+                cleaned.contains("sachet") ? "sachet" :
+                cleaned.contains("drop") ? "drop" : "unit";
+    }
+
+    private static String extractUnit(String lower) {
+        if (lower.contains("ml")) return "ml";
+        if (lower.contains("gm") || (lower.contains("g") && !lower.contains("mg"))) return "gm";
+        if (lower.contains("mg")) return "mg";
+        if (lower.contains("pack")) return "pack";
+        if (lower.contains("tablet")) return "tablets";
+        if (lower.contains("capsule")) return "capsules";
+        if (lower.contains("vial")) return "vial";
+        if (lower.contains("bottle")) return "bottle";
+        if (lower.contains("container")) return "container";
+        return "pieces";
+    }
+
+    private static String stripCommas(String number) {
+        return number.indexOf(',') >= 0 ? number.replace(",", "") : number;
+    }
+}
@@ -0,0 +1,318 @@
+package com.heal.io.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory typeahead index over the active products. Brand, generic and manufacturer names are
+ * split into lower-case tokens kept in a sorted map, so a search term is a range scan over the
+ * tokens it is a prefix of instead of a {@code LIKE '%term%'} scan over the product table.
+ * <p>
+ * The index is built in the background when the application starts, updated for single products
+ * when they are saved and rebuilt after imports. Until the first build has finished it is cold and
+ * callers are expected to fall back to the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final String SELECT_PRODUCTS_SQL =
+            "SELECT p.id, p.name, c.name, m.name, g.name, d.name, p.strength FROM product p " +
+            "LEFT JOIN product_category c ON c.id = p.product_category_id " +
+            "LEFT JOIN manufacturer m ON m.id = p.manufacturer_id " +
+            "LEFT JOIN generic g ON g.id = p.generic_id " +
+            "LEFT JOIN dosage_form d ON d.id = p.dosage_form_id " +
+            "WHERE p.is_active = true";
+
+    private static final RowMapper<Entry> ENTRY_MAPPER = (rs, rowNum) -> new Entry(rs.getLong(1),
+            rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7));
+
+    // Queries this short would match most of the catalog by substring, so they only match prefixes
+    private static final int MIN_SUBSTRING_QUERY_LENGTH = 3;
+
+    private static final Comparator<Scored> RANKING = Comparator.comparingInt(Scored::score).reversed()
+            .thenComparingInt(s -> s.product.name.length())
+            .thenComparing(s -> s.product.name);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Snapshot snapshot;
+
+    // Ids refreshed while a rebuild is running, possibly into the snapshot it is about to replace
+    private volatile Set<Long> refreshedDuringRebuild;
+
+    /**
+     * Product fields shown in search results.
+     */
+    public record Entry(Long id, String name, String category, String manufacturer, String generic,
+                        String dosageForm, String strength) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("product-search-index").start(this::rebuild);
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Reloads all active products. The previous index keeps serving searches until the new one is
+     * complete; products refreshed in the meantime are read again into the new one once it is.
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        refreshedDuringRebuild = ConcurrentHashMap.newKeySet();
+        try {
+            List<Entry> entries = jdbcTemplate.query(SELECT_PRODUCTS_SQL, ENTRY_MAPPER);
+            replaceAll(entries);
+            Set<Long> refreshed = refreshedDuringRebuild;
+            refreshedDuringRebuild = null;
+            refreshed.forEach(this::refresh);
+            log.info("Product search index built with {} products in {} ms",
+                    entries.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Could not build product search index: {}", e.getMessage(), e);
+        } finally {
+            refreshedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * Re-reads one product after it was saved, or drops it from the index when it is no longer active.
+     */
+    public void refresh(Long productId) {
+        // Recorded before the snapshot is read, so that a refresh into a snapshot that is being
+        // replaced is either seen by the rebuild or reads the new snapshot
+        Set<Long> refreshed = refreshedDuringRebuild;
+        if (refreshed != null) {
+            refreshed.add(productId);
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<Entry> entries = jdbcTemplate.query(SELECT_PRODUCTS_SQL + " AND p.id = ?", ENTRY_MAPPER, productId);
+        if (entries.isEmpty()) {
+            current.remove(productId);
+        } else {
+            current.put(entries.get(0));
+        }
+    }
+
+    void replaceAll(Collection<Entry> entries) {
+        Snapshot rebuilt = new Snapshot();
+        entries.forEach(rebuilt::put);
+        snapshot = rebuilt;
+    }
+
+    /**
+     * Products whose brand, generic or manufacturer names contain a token starting with every term of
+     * {@code query}, best matches first. Queries of at least three characters also match anywhere
+     * inside those names when there are not enough prefix matches.
+     *
+     * @return the matches, or an empty list when the index is cold
+     */
+    public List<Entry> search(String query, int limit) {
+        Snapshot current = snapshot;
+        String normalized = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        List<String> terms = tokenize(normalized);
+        if (current == null || terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // Brand name matches outrank everything else, so when there are enough of them the much
+        // larger generic and manufacturer postings (every "pharmaceuticals ltd.") are never read
+        Set<Long> candidates = matchAll(current.nameTokens, terms);
+        if (candidates.size() < limit) {
+            candidates = matchAll(current.tokens, terms);
+        }
+
+        // Keep only the best `limit` matches; short queries can match most of the catalog
+        PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (Long id : candidates) {
+            IndexedProduct product = current.products.get(id);
+            if (product != null) {
+                offer(best, new Scored(product, score(product, normalized, terms)), limit);
+            }
+        }
+        if (best.size() < limit && normalized.length() >= MIN_SUBSTRING_QUERY_LENGTH) {
+            for (IndexedProduct product : current.products.values()) {
+                if (!candidates.contains(product.entry.id()) && product.searchText.contains(normalized)) {
+                    offer(best, new Scored(product, 0), limit);
+                }
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.stream().map(s -> s.product.entry).toList();
+    }
+
+    /**
+     * Ids having, for every term, a token that starts with it.
+     */
+    private static Set<Long> matchAll(ConcurrentSkipListMap<String, Set<Long>> tokens, List<String> terms) {
+        Set<Long> candidates = null;
+        for (String term : terms) {
+            Set<Long> matches = new HashSet<>();
+            for (Set<Long> ids : tokens.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+                matches.addAll(ids);
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private static void offer(PriorityQueue<Scored> best, Scored candidate, int limit) {
+        best.add(candidate);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.products.size();
+    }
+
+    private static int score(IndexedProduct product, String query, List<String> terms) {
+        if (product.name.equals(query)) {
+            return 500;
+        }
+        if (product.name.startsWith(query)) {
+            return 400;
+        }
+        if (allPrefixed(product.nameTokens, terms)) {
+            return 300;
+        }
+        if (product.generic.startsWith(query) || allPrefixed(product.genericTokens, terms)) {
+            return 200;
+        }
+        return 100;
+    }
+
+    private static boolean allPrefixed(List<String> tokens, List<String> terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private record Scored(IndexedProduct product, int score) {
+    }
+
+    /**
+     * An entry with its lower-cased names and tokens, computed once when it is indexed.
+     */
+    private static class IndexedProduct {
+        private final Entry entry;
+        private final String name;
+        private final String generic;
+        private final String searchText;
+        private final List<String> nameTokens;
+        private final List<String> genericTokens;
+        private final Set<String> allTokens = new HashSet<>();
+
+        IndexedProduct(Entry entry) {
+            this.entry = entry;
+            this.name = lower(entry.name());
+            this.generic = lower(entry.generic());
+            String manufacturer = lower(entry.manufacturer());
+            this.searchText = name + '\n' + generic + '\n' + manufacturer;
+            this.nameTokens = tokenize(name);
+            this.genericTokens = tokenize(generic);
+            allTokens.addAll(nameTokens);
+            allTokens.addAll(genericTokens);
+            allTokens.addAll(tokenize(manufacturer));
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<Long, IndexedProduct> products = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Set<Long>> nameTokens = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<String, Set<Long>> tokens = new ConcurrentSkipListMap<>();
+
+        synchronized void put(Entry entry) {
+            remove(entry.id());
+            IndexedProduct product = new IndexedProduct(entry);
+            products.put(entry.id(), product);
+            for (String token : product.nameTokens) {
+                nameTokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+            for (String token : product.allTokens) {
+                tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+        }
+
+        synchronized void remove(Long id) {
+            IndexedProduct previous = products.remove(id);
+            if (previous == null) {
+                return;
+            }
+            unlink(nameTokens, previous.nameTokens, id);
+            unlink(tokens, previous.allTokens, id);
+        }
+
+        private static void unlink(Map<String, Set<Long>> postings, Collection<String> keys, Long id) {
+            for (String token : keys) {
+                Set<Long> ids = postings.get(token);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(token, ids);
+                    }
+                }
+            }
+        }
+    }
+}
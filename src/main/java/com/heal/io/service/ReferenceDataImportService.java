@@ -0,0 +1,131 @@
+package com.heal.io.service;
+
+import com.heal.io.config.ImportProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk loader for the reference CSVs (manufacturers, dosage forms, drug classes and indications).
+ * Each file is written with one batched, idempotent insert per chunk, so the dimension tables are
+ * warm before a medicine import and its writer only has to look names up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataImportService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditorAware<String> auditorProvider;
+    private final ImportProperties importProperties;
+    private final DimensionCache dimensionCache;
+
+    /**
+     * Inserts the rows of one reference file that are not in the table yet. Existing rows, matched
+     * by their unique name or slug, are left untouched.
+     */
+    public ReferenceImportResult importDataset(ReferenceDataset dataset, InputStream in) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        int skipped = 0;
+        try (CsvTokenizer csv = new CsvTokenizer(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            if (!csv.next()) { // Skip header
+                return new ReferenceImportResult(dataset, 0, 0, 0);
+            }
+            while (csv.next()) {
+                if (csv.getFieldCount() < 3 || csv.trimmedField(1).isEmpty()) {
+                    skipped++;
+                    continue;
+                }
+                String slug = csv.trimmedField(2);
+                rows.add(new String[]{csv.trimmedField(1), slug.isEmpty() ? null : slug});
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        String sql = "INSERT INTO " + dataset.getTable() +
+                " (name, slug, is_active, created_at, updated_at, created_by, last_modified_by) " +
+                "VALUES (?, ?, true, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+        // Batched inserts rewritten by the driver do not report per-row counts, so count the table instead
+        Integer inserted = transactionTemplate.execute(status -> {
+            long before = countRows(dataset);
+            jdbcTemplate.batchUpdate(sql, rows, Math.max(importProperties.getBatchSize(), 1), (ps, row) -> {
+                ps.setString(1, row[0]);
+                ps.setString(2, row[1]);
+                ps.setTimestamp(3, now);
+                ps.setTimestamp(4, now);
+                ps.setString(5, auditor);
+                ps.setString(6, auditor);
+            });
+            return (int) (countRows(dataset) - before);
+        });
+
+        if (inserted > 0) {
+            dimensionCache.evictAll();
+        }
+        ReferenceImportResult result = new ReferenceImportResult(dataset, rows.size(), inserted, skipped);
+        log.info("Reference import of {}: {} rows, {} inserted, {} skipped",
+                dataset.getFileName(), result.rows(), result.inserted(), result.skipped());
+        return result;
+    }
+
+    /**
+     * Imports every reference file that exists in {@code directory}, under its usual file name.
+     */
+    public List<ReferenceImportResult> importDirectory(Path directory) throws IOException {
+        List<ReferenceImportResult> results = new ArrayList<>();
+        for (ReferenceDataset dataset : ReferenceDataset.values()) {
+            Path file = directory.resolve(dataset.getFileName());
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    results.add(importDataset(dataset, in));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Seeds the dimension tables from the configured server import directory, if there is one.
+     */
+    public List<ReferenceImportResult> seedFromImportDirectory() throws IOException {
+        if (!StringUtils.hasText(importProperties.getDirectory())) {
+            return List.of();
+        }
+        return importDirectory(Path.of(importProperties.getDirectory()));
+    }
+
+    private long countRows(ReferenceDataset dataset) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + dataset.getTable(), Long.class);
+        return count != null ? count : 0;
+    }
+
+    public record ReferenceImportResult(ReferenceDataset dataset, int rows, int inserted, int skipped) {
+
+        public int getExisting() {
+            return rows - inserted;
+        }
+
+        public String getSummary() {
+            return dataset.getFileName() + ": " + rows + " rows, " + inserted + " new, " +
+                    getExisting() + " already present" + (skipped > 0 ? ", " + skipped + " skipped" : "");
+        }
+    }
+}
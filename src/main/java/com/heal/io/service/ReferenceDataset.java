@@ -0,0 +1,43 @@
+package com.heal.io.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reference CSV files shipped with the medicine data. Each has an id, name and slug column and
+ * seeds one dimension table.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ReferenceDataset {
+
+    MANUFACTURER("manufacturer", "manufacturer.csv"),
+    DOSAGE_FORM("dosage_form", "dosage form.csv"),
+    DRUG_CLASS("drug_class", "drug class.csv"),
+    INDICATION("indication", "indication.csv");
+
+    private final String table;
+    private final String fileName;
+
+    /**
+     * Matches an uploaded file name to its dataset, ignoring case and whether words are separated
+     * by spaces, underscores or dashes ({@code dosage_form.csv} is the dosage form file).
+     */
+    public static Optional<ReferenceDataset> forFileName(String fileName) {
+        if (fileName == null) {
+            return Optional.empty();
+        }
+        String normalized = normalize(fileName);
+        return Arrays.stream(values())
+                .filter(dataset -> normalize(dataset.fileName).equals(normalized))
+                .findFirst();
+    }
+
+    private static String normalize(String fileName) {
+        return fileName.trim().toLowerCase(Locale.ROOT).replace('_', ' ').replace('-', ' ');
+    }
+}
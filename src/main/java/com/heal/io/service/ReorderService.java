@@ -0,0 +1,125 @@
+package com.heal.io.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Products that have run low, and the purchase orders that would restock them.
+ * <p>
+ * Stock is low per product and package: when the available units of all its batches together are
+ * at or below the reorder level. The batches flagged by {@code available_quantity <= reorder_level}
+ * are kept in the {@code idx_inventory_low_stock} partial index, which PostgreSQL updates with every
+ * quantity change. A product can only be low if one of its batches is flagged, since no batch holds
+ * more than the total, so the flagged entries are the candidates and only their batches are summed.
+ * <p>
+ * Sold-out batches are flagged too, which keeps a product whose batches are all sold out on the
+ * list. They stay flagged only until the product and package are restocked, when
+ * {@link InventoryLedgerService#receive} deactivates them, so the flagged rows are the low batches
+ * still in stock and those sold out since the last restock, not the inventory's history. Reading
+ * low stock costs as much as those rows, however large the inventory.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReorderService {
+
+    // Low stock as the CTE "low"; the first condition matches the idx_inventory_low_stock predicate
+    static final String LOW_STOCK_CTE =
+            "WITH flagged AS (SELECT DISTINCT product_id, product_package_id FROM inventory " +
+            "WHERE is_active = true AND available_quantity <= reorder_level), " +
+            "low AS (SELECT i.product_id, i.product_package_id, sum(i.available_quantity) AS available, " +
+            "max(i.reorder_level) AS reorder_level, max(i.max_stock_level) AS max_stock_level " +
+            "FROM flagged f JOIN inventory i ON i.product_id = f.product_id " +
+            "AND i.product_package_id IS NOT DISTINCT FROM f.product_package_id " +
+            "WHERE i.is_active = true GROUP BY i.product_id, i.product_package_id " +
+            "HAVING sum(i.available_quantity) <= max(i.reorder_level)) ";
+
+    private static final String COUNT_SQL = LOW_STOCK_CTE + "SELECT count(*) FROM low";
+
+    // Restocks up to the maximum stock level, or twice the reorder level when none is set. Prices
+    // come from the most recently restocked batch; the supplier is the one that last delivered the
+    // product, else the first active supplier of its manufacturer.
+    private static final String LOW_STOCK_SQL = LOW_STOCK_CTE +
+            "SELECT l.product_id, p.name, l.product_package_id, pp.package_description, l.available, " +
+            "l.reorder_level, GREATEST(COALESCE(l.max_stock_level, 2 * l.reorder_level) - l.available, 0), " +
+            "latest.cost_price, s.id, s.name " +
+            "FROM low l JOIN product p ON p.id = l.product_id " +
+            "LEFT JOIN product_package pp ON pp.id = l.product_package_id " +
+            "LEFT JOIN LATERAL (SELECT cost_price FROM inventory WHERE product_id = l.product_id " +
+            "AND product_package_id IS NOT DISTINCT FROM l.product_package_id AND cost_price IS NOT NULL " +
+            "ORDER BY last_restocked_at DESC NULLS LAST, id DESC LIMIT 1) latest ON true " +
+            "LEFT JOIN supplier s ON s.id = COALESCE(" +
+            "(SELECT st.supplier_id FROM stock_in_item it JOIN stock_in st ON st.id = it.stock_in_id " +
+            "JOIN supplier su ON su.id = st.supplier_id AND su.is_active = true " +
+            "WHERE it.product_id = l.product_id ORDER BY st.stock_in_date DESC, st.id DESC LIMIT 1), " +
+            "(SELECT sm.supplier_id FROM supplier_manufacturer sm " +
+            "JOIN supplier su ON su.id = sm.supplier_id AND su.is_active = true " +
+            "WHERE sm.manufacturer_id = p.manufacturer_id ORDER BY sm.supplier_id LIMIT 1)) " +
+            "ORDER BY s.name NULLS LAST, s.id, p.name, l.product_package_id NULLS FIRST";
+
+    private static final RowMapper<LowStockItem> LOW_STOCK_ITEM = (rs, rowNum) -> new LowStockItem(
+            rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class), rs.getString(4), rs.getInt(5),
+            rs.getInt(6), rs.getInt(7), rs.getBigDecimal(8), rs.getObject(9, Long.class), rs.getString(10));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A product and package whose stock is at or below its reorder level. Package, unit cost and
+     * supplier are {@code null} when unknown.
+     */
+    public record LowStockItem(Long productId, String productName, Long packageId, String packageDescription,
+                               int available, int reorderLevel, int suggestedQuantity, BigDecimal unitCost,
+                               Long supplierId, String supplierName) {
+    }
+
+    /**
+     * The low-stock items to order from one supplier; {@code supplierId} is {@code null} for the
+     * items no supplier is known for. The estimated cost leaves out items without a unit cost.
+     */
+    public record PurchaseOrderSuggestion(Long supplierId, String supplierName, List<LowStockItem> items,
+                                          BigDecimal estimatedCost) {
+    }
+
+    public long countLowStock() {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * All low-stock items, ordered by supplier and product.
+     */
+    public List<LowStockItem> lowStock() {
+        return jdbcTemplate.query(LOW_STOCK_SQL, LOW_STOCK_ITEM);
+    }
+
+    /**
+     * One suggested purchase order per supplier, for the low-stock items with something to order.
+     */
+    public List<PurchaseOrderSuggestion> suggestPurchaseOrders() {
+        Map<Long, List<LowStockItem>> bySupplier = new LinkedHashMap<>();
+        for (LowStockItem item : lowStock()) {
+            if (item.suggestedQuantity() > 0) {
+                bySupplier.computeIfAbsent(item.supplierId(), id -> new ArrayList<>()).add(item);
+            }
+        }
+        List<PurchaseOrderSuggestion> suggestions = new ArrayList<>(bySupplier.size());
+        for (List<LowStockItem> items : bySupplier.values()) {
+            BigDecimal estimatedCost = BigDecimal.ZERO;
+            for (LowStockItem item : items) {
+                if (item.unitCost() != null) {
+                    estimatedCost = estimatedCost.add(item.unitCost().multiply(BigDecimal.valueOf(item.suggestedQuantity())));
+                }
+            }
+            LowStockItem first = items.get(0);
+            suggestions.add(new PurchaseOrderSuggestion(first.supplierId(), first.supplierName(), items, estimatedCost));
+        }
+        return suggestions;
+    }
+}
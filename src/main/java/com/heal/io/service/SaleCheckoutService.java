@@ -0,0 +1,255 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.ProductPackage;
+import com.heal.io.entity.Sale;
+import com.heal.io.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Point-of-sale checkout: takes the sold units from the inventory, first expiry first, and writes
+ * the sale, its items and the payment in one transaction. Stock is decremented with conditional
+ * updates rather than read-modify-write, so counters selling the same product at the same time
+ * never oversell; a sale that cannot be fully served is rolled back.
+ */
+@Service
+@RequiredArgsConstructor
+public class SaleCheckoutService {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO sale_item (sale_id, product_id, product_package_id, inventory_id, batch_number, " +
+            "expiry_date, product_name, quantity, unit_price, discount_amount, total_price, cost_price, " +
+            "profit_amount, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?)";
+
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payment_transaction (sale_id, transaction_type, amount, payment_method, " +
+            "transaction_date, processed_by, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, 'SALE', ?, ?, ?, ?, true, ?, ?, ?, ?)";
+
+    private final SaleRepository saleRepository;
+    private final ProductRepository productRepository;
+    private final ProductPackageRepository productPackageRepository;
+    private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final InventoryReservationService inventoryReservationService;
+    private final SalesRollupService salesRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentNumberGenerator documentNumberGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorProvider;
+
+    /**
+     * A sale as entered at the counter.
+     *
+     * @param paidAmount amount handed over, or null when it is exactly the total
+     * @param cartId     cart whose reservations the sale uses up, or null when nothing was reserved
+     */
+    public record CheckoutRequest(Long customerId, String customerName, String customerPhone,
+                                  String paymentMethod, BigDecimal paidAmount, BigDecimal discountAmount,
+                                  BigDecimal taxAmount, String prescriptionNumber, String notes,
+                                  List<Item> items, String cartId) {
+    }
+
+    /**
+     * @param unitPrice price per unit, or null for the package price or else the batch's selling price
+     */
+    public record Item(Long productId, Long packageId, int quantity, BigDecimal unitPrice, BigDecimal discountAmount) {
+    }
+
+    /**
+     * A sold share of one item, served from a single inventory batch.
+     */
+    private record SoldLine(Item item, Product product, InventoryLedgerService.Allocation allocation,
+                            BigDecimal unitPrice, BigDecimal discount) {
+
+        BigDecimal totalPrice() {
+            return unitPrice.multiply(BigDecimal.valueOf(allocation.quantity())).subtract(discount);
+        }
+
+        BigDecimal profit() {
+            if (allocation.costPrice() == null) {
+                return null;
+            }
+            return totalPrice().subtract(allocation.costPrice().multiply(BigDecimal.valueOf(allocation.quantity())));
+        }
+    }
+
+    /**
+     * Sells {@code request} on behalf of {@code username}.
+     *
+     * @throws IllegalArgumentException when the request is malformed or refers to unknown products
+     * @throws IllegalStateException when a product does not have enough sellable stock
+     */
+    @Transactional
+    public Sale checkout(CheckoutRequest request, String username) {
+        if (request.items() == null || request.items().isEmpty()) {
+            throw new IllegalArgumentException("A sale needs at least one item");
+        }
+        if (request.paymentMethod() == null || request.paymentMethod().isBlank()) {
+            throw new IllegalArgumentException("Payment method is required");
+        }
+        Long userId = userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown user: " + username));
+
+        Map<Long, Product> products = loadById(productRepository.findAllById(
+                request.items().stream().map(Item::productId).collect(Collectors.toSet())), Product::getId);
+        Map<Long, ProductPackage> packages = loadById(productPackageRepository.findAllById(
+                request.items().stream().map(Item::packageId).filter(Objects::nonNull).collect(Collectors.toSet())),
+                ProductPackage::getId);
+        for (Item item : request.items()) {
+            if (item.quantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for product " + item.productId());
+            }
+            Product product = products.get(item.productId());
+            if (product == null || !Boolean.TRUE.equals(product.getIsActive())) {
+                throw new IllegalArgumentException("Product not found: " + item.productId());
+            }
+            if (item.packageId() != null && (!packages.containsKey(item.packageId())
+                    || !packages.get(item.packageId()).getProduct().getId().equals(item.productId()))) {
+                throw new IllegalArgumentException("Package " + item.packageId() +
+                        " does not belong to product " + item.productId());
+            }
+        }
+
+        String saleNumber = documentNumberGenerator.next(DocumentType.SALE);
+        if (request.cartId() != null) {
+            inventoryReservationService.releaseForCheckout(request.cartId());
+        }
+
+        // Lock inventory rows in product order so that two sales of the same products cannot deadlock
+        List<Item> ordered = new ArrayList<>(request.items());
+        ordered.sort(Comparator.comparing(Item::productId)
+                .thenComparing(item -> item.packageId() != null ? item.packageId() : 0L));
+        List<SoldLine> lines = new ArrayList<>();
+        List<InventoryLedgerService.Allocation> allocations = new ArrayList<>();
+        for (Item item : ordered) {
+            List<InventoryLedgerService.Allocation> taken =
+                    inventoryLedgerService.allocateFefo(item.productId(), item.packageId(), item.quantity());
+            allocations.addAll(taken);
+            BigDecimal itemDiscount = item.discountAmount() != null ? item.discountAmount() : BigDecimal.ZERO;
+            BigDecimal discountLeft = itemDiscount;
+            for (int i = 0; i < taken.size(); i++) {
+                InventoryLedgerService.Allocation allocation = taken.get(i);
+                // An item spread over several batches shares its discount in proportion to the units
+                BigDecimal discount = i == taken.size() - 1 ? discountLeft
+                        : itemDiscount.multiply(BigDecimal.valueOf(allocation.quantity()))
+                                .divide(BigDecimal.valueOf(item.quantity()), 2, RoundingMode.HALF_UP);
+                discountLeft = discountLeft.subtract(discount);
+                lines.add(new SoldLine(item, products.get(item.productId()), allocation,
+                        unitPrice(item, packages.get(item.packageId()), allocation), discount));
+            }
+        }
+
+        BigDecimal subtotal = lines.stream().map(SoldLine::totalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal discount = request.discountAmount() != null ? request.discountAmount() : BigDecimal.ZERO;
+        BigDecimal tax = request.taxAmount() != null ? request.taxAmount() : BigDecimal.ZERO;
+        BigDecimal total = subtotal.subtract(discount).add(tax);
+        BigDecimal paid = request.paidAmount() != null ? request.paidAmount() : total;
+
+        LocalDateTime now = LocalDateTime.now();
+        Sale sale = new Sale();
+        sale.setSaleNumber(saleNumber);
+        sale.setSaleDate(now);
+        if (request.customerId() != null) {
+            sale.setCustomer(customerRepository.getReferenceById(request.customerId()));
+        }
+        sale.setCustomerName(request.customerName());
+        sale.setCustomerPhone(request.customerPhone());
+        sale.setSubtotal(subtotal);
+        sale.setDiscountAmount(discount);
+        sale.setTaxAmount(tax);
+        sale.setTotalAmount(total);
+        sale.setPaidAmount(paid);
+        sale.setChangeAmount(paid.compareTo(total) > 0 ? paid.subtract(total) : BigDecimal.ZERO);
+        sale.setPaymentMethod(request.paymentMethod());
+        sale.setPaymentStatus(paid.compareTo(total) >= 0 ? "PAID" : paid.signum() > 0 ? "PARTIAL" : "PENDING");
+        sale.setSaleStatus("COMPLETED");
+        sale.setPrescriptionRequired(lines.stream().anyMatch(line -> Boolean.TRUE.equals(line.product().getRequiresPrescription())));
+        sale.setPrescriptionNumber(request.prescriptionNumber());
+        sale.setNotes(request.notes());
+        sale.setSoldBy(userRepository.getReferenceById(userId));
+        Sale saved = saleRepository.save(sale);
+
+        insertItems(saved.getId(), lines, now);
+        insertPayment(saved.getId(), request.paymentMethod(), paid.min(total), userId, now);
+        inventoryLedgerService.recordIssues(saleNumber, allocations);
+        // Last, so the hot rollup rows are locked only until the commit
+        salesRollupService.record(saved.getId());
+        eventPublisher.publishEvent(new SaleCompletedEvent(saved.getId(), now, total));
+        return saved;
+    }
+
+    private static BigDecimal unitPrice(Item item, ProductPackage productPackage,
+                                        InventoryLedgerService.Allocation allocation) {
+        if (item.unitPrice() != null) {
+            return item.unitPrice();
+        }
+        if (productPackage != null && productPackage.getUnitPrice() != null) {
+            return productPackage.getUnitPrice();
+        }
+        if (allocation.sellingPrice() != null) {
+            return allocation.sellingPrice();
+        }
+        throw new IllegalArgumentException("No price for product " + item.productId());
+    }
+
+    private void insertItems(Long saleId, List<SoldLine> lines, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, lines, lines.size(), (ps, line) -> {
+            InventoryLedgerService.Allocation allocation = line.allocation();
+            ps.setLong(1, saleId);
+            ps.setLong(2, line.product().getId());
+            if (line.item().packageId() != null) {
+                ps.setLong(3, line.item().packageId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setLong(4, allocation.inventoryId());
+            ps.setString(5, allocation.batchNumber());
+            ps.setDate(6, allocation.expiryDate() != null ? Date.valueOf(allocation.expiryDate()) : null);
+            ps.setString(7, line.product().getName());
+            ps.setInt(8, allocation.quantity());
+            ps.setBigDecimal(9, line.unitPrice());
+            ps.setBigDecimal(10, line.discount());
+            ps.setBigDecimal(11, line.totalPrice());
+            ps.setBigDecimal(12, allocation.costPrice());
+            ps.setBigDecimal(13, line.profit());
+            ps.setTimestamp(14, timestamp);
+            ps.setTimestamp(15, timestamp);
+            ps.setString(16, auditor);
+            ps.setString(17, auditor);
+        });
+    }
+
+    private void insertPayment(Long saleId, String paymentMethod, BigDecimal amount, Long userId, LocalDateTime now) {
+        if (amount.signum() <= 0) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        jdbcTemplate.update(INSERT_PAYMENT_SQL, saleId, amount, paymentMethod, timestamp, userId,
+                timestamp, timestamp, auditor, auditor);
+    }
+
+    private static <T> Map<Long, T> loadById(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+}
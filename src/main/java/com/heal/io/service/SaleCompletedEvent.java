@@ -0,0 +1,10 @@
+package com.heal.io.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published by the checkout for every completed sale; listeners see it once the sale is committed.
+ */
+public record SaleCompletedEvent(Long saleId, LocalDateTime saleDate, BigDecimal totalAmount) {
+}
@@ -0,0 +1,221 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.SalesPaymentRollup;
+import com.heal.io.entity.SalesProductRollup;
+import com.heal.io.entity.SalesUserRollup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the daily sales rollups ({@link SalesProductRollup}, {@link SalesUserRollup} and
+ * {@link SalesPaymentRollup}) and reports from them, so a monthly or yearly report reads a few
+ * hundred rows per day instead of every sale item.
+ * <p>
+ * The checkout adds each completed sale in its own transaction with additive upserts. A rebuild
+ * recomputes a date range from the sales, one month per transaction; it uses the same upserts, so
+ * sales completed while it runs are counted exactly once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService {
+
+    private static final String AUDIT_VALUES = "true, ?, ?, ?, ?";
+    private static final String AUDIT_UPDATE = "updated_at = EXCLUDED.updated_at, last_modified_by = EXCLUDED.last_modified_by";
+
+    // Each template takes the sales to add as a condition on "s"; parameters: the four audit values, then the condition's
+    private static final String PRODUCT_UPSERT =
+            "INSERT INTO sales_rollup_product (sale_day, product_id, units, revenue, profit, " +
+            "is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "SELECT CAST(s.sale_date AS date), si.product_id, SUM(si.quantity), SUM(si.total_price), " +
+            "COALESCE(SUM(si.profit_amount), 0), " + AUDIT_VALUES + " " +
+            "FROM sale s JOIN sale_item si ON si.sale_id = s.id WHERE s.sale_status = 'COMPLETED' AND %s " +
+            "GROUP BY CAST(s.sale_date AS date), si.product_id ORDER BY 1, 2 " +
+            "ON CONFLICT (sale_day, product_id) DO UPDATE SET " +
+            "units = sales_rollup_product.units + EXCLUDED.units, " +
+            "revenue = sales_rollup_product.revenue + EXCLUDED.revenue, " +
+            "profit = sales_rollup_product.profit + EXCLUDED.profit, " + AUDIT_UPDATE;
+
+    // Units and profit of each sale, summed from its items
+    private static final String SALE_ITEM_TOTALS =
+            "LEFT JOIN LATERAL (SELECT SUM(quantity) AS units, SUM(profit_amount) AS profit " +
+            "FROM sale_item WHERE sale_id = s.id) i ON true";
+
+    private static final String USER_UPSERT =
+            "INSERT INTO sales_rollup_user (sale_day, user_id, sale_count, units, revenue, profit, " +
+            "is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "SELECT CAST(s.sale_date AS date), s.sold_by, count(*), COALESCE(SUM(i.units), 0), SUM(s.total_amount), " +
+            "COALESCE(SUM(i.profit), 0), " + AUDIT_VALUES + " " +
+            "FROM sale s " + SALE_ITEM_TOTALS + " WHERE s.sale_status = 'COMPLETED' AND %s " +
+            "GROUP BY CAST(s.sale_date AS date), s.sold_by ORDER BY 1, 2 " +
+            "ON CONFLICT (sale_day, user_id) DO UPDATE SET " +
+            "sale_count = sales_rollup_user.sale_count + EXCLUDED.sale_count, " +
+            "units = sales_rollup_user.units + EXCLUDED.units, " +
+            "revenue = sales_rollup_user.revenue + EXCLUDED.revenue, " +
+            "profit = sales_rollup_user.profit + EXCLUDED.profit, " + AUDIT_UPDATE;
+
+    private static final String PAYMENT_UPSERT =
+            "INSERT INTO sales_rollup_payment (sale_day, payment_method, sale_count, units, revenue, " +
+            "discount_amount, tax_amount, profit, is_active, created_at, updated_at, created_by, last_modified_by) " +
+            "SELECT CAST(s.sale_date AS date), s.payment_method, count(*), COALESCE(SUM(i.units), 0), " +
+            "SUM(s.total_amount), COALESCE(SUM(s.discount_amount), 0), COALESCE(SUM(s.tax_amount), 0), " +
+            "COALESCE(SUM(i.profit), 0), " + AUDIT_VALUES + " " +
+            "FROM sale s " + SALE_ITEM_TOTALS + " WHERE s.sale_status = 'COMPLETED' AND %s " +
+            "GROUP BY CAST(s.sale_date AS date), s.payment_method ORDER BY 1, 2 " +
+            "ON CONFLICT (sale_day, payment_method) DO UPDATE SET " +
+            "sale_count = sales_rollup_payment.sale_count + EXCLUDED.sale_count, " +
+            "units = sales_rollup_payment.units + EXCLUDED.units, " +
+            "revenue = sales_rollup_payment.revenue + EXCLUDED.revenue, " +
+            "discount_amount = sales_rollup_payment.discount_amount + EXCLUDED.discount_amount, " +
+            "tax_amount = sales_rollup_payment.tax_amount + EXCLUDED.tax_amount, " +
+            "profit = sales_rollup_payment.profit + EXCLUDED.profit, " + AUDIT_UPDATE;
+
+    // Upserts in the order the checkout locks the rollup rows: products by id, then the user, then the payment method
+    private static final List<String> UPSERTS = List.of(PRODUCT_UPSERT, USER_UPSERT, PAYMENT_UPSERT);
+    private static final List<String> TABLES = List.of("sales_rollup_product", "sales_rollup_user", "sales_rollup_payment");
+
+    private static final String ONE_SALE = "s.id = ?";
+    // A range on sale_date, so idx_sale_date can be used
+    private static final String SALE_DATES = "s.sale_date >= ? AND s.sale_date < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditorAware<String> auditorProvider;
+
+    public enum Granularity {
+        DAY, MONTH, YEAR;
+
+        String field() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Completed sales of one period, e.g. one month.
+     */
+    public record PeriodTotal(LocalDate period, long sales, long units, BigDecimal revenue,
+                              BigDecimal discountAmount, BigDecimal taxAmount, BigDecimal profit) {
+    }
+
+    /**
+     * Completed sales in a date range grouped by product, cashier or payment method.
+     *
+     * @param sales number of sales, or null for products, whose rows count units of sale items
+     */
+    public record GroupTotal(String key, String name, Long sales, long units, BigDecimal revenue, BigDecimal profit) {
+    }
+
+    /**
+     * Adds a sale to the rollups. Must run in the transaction that completed it, after its items were written.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long saleId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        for (String upsert : UPSERTS) {
+            jdbcTemplate.update(String.format(upsert, ONE_SALE), now, now, auditor, auditor, saleId);
+        }
+    }
+
+    /**
+     * Recomputes the rollups of the days {@code from} to {@code to}, both inclusive. Either may be
+     * null for the first or last day with sales.
+     *
+     * @return the number of days rebuilt
+     */
+    public long rebuild(LocalDate from, LocalDate to) {
+        LocalDate first = from != null ? from : saleDay("MIN");
+        LocalDate last = to != null ? to : saleDay("MAX");
+        if (first == null || last == null || first.isAfter(last)) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        for (LocalDate start = first; !start.isAfter(last); start = start.withDayOfMonth(1).plusMonths(1)) {
+            LocalDate end = start.withDayOfMonth(1).plusMonths(1);
+            LocalDate chunkEnd = end.isAfter(last) ? last.plusDays(1) : end;
+            rebuildChunk(start, chunkEnd, auditor);
+        }
+        long days = last.toEpochDay() - first.toEpochDay() + 1;
+        log.info("Rebuilt sales rollups of {} days from {} to {} in {} ms",
+                days, first, last, (System.nanoTime() - started) / 1_000_000);
+        return days;
+    }
+
+    private void rebuildChunk(LocalDate from, LocalDate until, String auditor) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String table : TABLES) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE sale_day >= ? AND sale_day < ?",
+                        Date.valueOf(from), Date.valueOf(until));
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (String upsert : UPSERTS) {
+                jdbcTemplate.update(String.format(upsert, SALE_DATES), now, now, auditor, auditor,
+                        Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(until.atStartOfDay()));
+            }
+        });
+    }
+
+    private LocalDate saleDay(String aggregate) {
+        Date day = jdbcTemplate.queryForObject("SELECT CAST(" + aggregate + "(sale_date) AS date) FROM sale", Date.class);
+        return day != null ? day.toLocalDate() : null;
+    }
+
+    /**
+     * Totals per day, month or year of the days {@code from} to {@code to}, both inclusive.
+     */
+    public List<PeriodTotal> totals(LocalDate from, LocalDate to, Granularity granularity) {
+        return jdbcTemplate.query(
+                "SELECT CAST(date_trunc(?, sale_day) AS date), SUM(sale_count), SUM(units), SUM(revenue), " +
+                "SUM(discount_amount), SUM(tax_amount), SUM(profit) FROM sales_rollup_payment " +
+                "WHERE sale_day >= ? AND sale_day <= ? GROUP BY 1 ORDER BY 1",
+                (rs, rowNum) -> new PeriodTotal(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getLong(3),
+                        rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6), rs.getBigDecimal(7)),
+                granularity.field(), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * The best selling products by revenue.
+     */
+    public List<GroupTotal> byProduct(LocalDate from, LocalDate to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT r.product_id, p.name, SUM(r.units), SUM(r.revenue), SUM(r.profit) FROM sales_rollup_product r " +
+                "JOIN product p ON p.id = r.product_id WHERE r.sale_day >= ? AND r.sale_day <= ? " +
+                "GROUP BY r.product_id, p.name ORDER BY SUM(r.revenue) DESC, r.product_id LIMIT ?",
+                (rs, rowNum) -> new GroupTotal(rs.getString(1), rs.getString(2), null, rs.getLong(3),
+                        rs.getBigDecimal(4), rs.getBigDecimal(5)),
+                Date.valueOf(from), Date.valueOf(to), limit);
+    }
+
+    public List<GroupTotal> byUser(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT r.user_id, u.name, SUM(r.sale_count), SUM(r.units), SUM(r.revenue), SUM(r.profit) " +
+                "FROM sales_rollup_user r JOIN users u ON u.id = r.user_id WHERE r.sale_day >= ? AND r.sale_day <= ? " +
+                "GROUP BY r.user_id, u.name ORDER BY SUM(r.revenue) DESC",
+                (rs, rowNum) -> new GroupTotal(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getLong(4),
+                        rs.getBigDecimal(5), rs.getBigDecimal(6)),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<GroupTotal> byPaymentMethod(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT payment_method, SUM(sale_count), SUM(units), SUM(revenue), SUM(profit) FROM sales_rollup_payment " +
+                "WHERE sale_day >= ? AND sale_day <= ? GROUP BY payment_method ORDER BY SUM(revenue) DESC",
+                (rs, rowNum) -> new GroupTotal(rs.getString(1), rs.getString(1), rs.getLong(2), rs.getLong(3),
+                        rs.getBigDecimal(4), rs.getBigDecimal(5)),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+}
@@ -0,0 +1,152 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.ProductPackage;
+import com.heal.io.entity.StockIn;
+import com.heal.io.entity.User;
+import com.heal.io.repository.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Goods receipt: saves a stock-in document with its lines and adds the received stock to the
+ * inventory, all in one transaction. Referenced products and packages are loaded with one query
+ * each and the lines are written as JDBC batches, so the cost of a document hardly grows with its
+ * number of lines.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockInService {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO stock_in_item (stock_in_id, product_id, product_package_id, batch_number, expiry_date, " +
+            "quantity, unit_cost, total_cost, selling_price, location, is_active, " +
+            "created_at, updated_at, created_by, last_modified_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?)";
+
+    private final StockInRepository stockInRepository;
+    private final SupplierRepository supplierRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final ProductPackageRepository productPackageRepository;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final DocumentNumberGenerator documentNumberGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorProvider;
+
+    /**
+     * One received line of the stock-in form.
+     */
+    public record Line(Long productId, Long packageId, int quantity, BigDecimal unitCost,
+                       BigDecimal sellingPrice, LocalDate expiryDate) {
+
+        BigDecimal totalCost() {
+            return unitCost.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    /**
+     * Saves {@code stockIn} with {@code lines} and receives them into the inventory. Nothing is
+     * written when a line refers to an unknown product or to a package of another product.
+     *
+     * @param username user recorded as having received the goods, may be null
+     * @throws IllegalArgumentException when a line cannot be received
+     */
+    @Transactional
+    public StockIn receive(StockIn stockIn, Long supplierId, String username, List<Line> lines) {
+        long started = System.nanoTime();
+        Map<Long, Product> products = loadById(productRepository.findAllById(
+                lines.stream().map(Line::productId).collect(Collectors.toSet())), Product::getId);
+        Map<Long, ProductPackage> packages = loadById(productPackageRepository.findAllById(
+                lines.stream().map(Line::packageId).filter(Objects::nonNull).collect(Collectors.toSet())),
+                ProductPackage::getId);
+        for (Line line : lines) {
+            if (!products.containsKey(line.productId())) {
+                throw new IllegalArgumentException("Product not found: " + line.productId());
+            }
+            if (line.packageId() != null) {
+                ProductPackage productPackage = packages.get(line.packageId());
+                if (productPackage == null || !productPackage.getProduct().getId().equals(line.productId())) {
+                    throw new IllegalArgumentException("Package " + line.packageId() +
+                            " does not belong to product " + line.productId());
+                }
+            }
+        }
+
+        if (stockIn.getStockInNumber() == null || stockIn.getStockInNumber().isEmpty()) {
+            stockIn.setStockInNumber(documentNumberGenerator.next(DocumentType.STOCK_IN));
+        }
+        if (supplierId != null) {
+            stockIn.setSupplier(supplierRepository.findById(supplierId).orElse(null));
+        }
+        if (username != null) {
+            User currentUser = userRepository.findByUsername(username).orElse(null);
+            stockIn.setInsertedBy(currentUser);
+            stockIn.setReceivedBy(currentUser);
+        }
+
+        BigDecimal totalAmount = lines.stream().map(Line::totalCost).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal discount = stockIn.getDiscountAmount() != null ? stockIn.getDiscountAmount() : BigDecimal.ZERO;
+        BigDecimal tax = stockIn.getTaxAmount() != null ? stockIn.getTaxAmount() : BigDecimal.ZERO;
+        stockIn.setTotalAmount(totalAmount);
+        stockIn.setFinalAmount(totalAmount.subtract(discount).add(tax));
+        StockIn saved = stockInRepository.save(stockIn);
+
+        insertItems(saved.getId(), lines);
+        inventoryLedgerService.receive(saved.getStockInNumber(), lines.stream()
+                .map(line -> new InventoryLedgerService.Receipt(line.productId(), line.packageId(), null,
+                        line.expiryDate(), line.quantity(), line.unitCost(), line.sellingPrice(), null))
+                .toList());
+
+        log.info("Stock in {} received {} lines in {} ms", saved.getStockInNumber(), lines.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return saved;
+    }
+
+    private void insertItems(Long stockInId, List<Line> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("system");
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, stockInId);
+            ps.setLong(2, line.productId());
+            if (line.packageId() != null) {
+                ps.setLong(3, line.packageId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setString(4, null);
+            ps.setDate(5, line.expiryDate() != null ? Date.valueOf(line.expiryDate()) : null);
+            ps.setInt(6, line.quantity());
+            ps.setBigDecimal(7, line.unitCost());
+            ps.setBigDecimal(8, line.totalCost());
+            ps.setBigDecimal(9, line.sellingPrice());
+            ps.setString(10, null);
+            ps.setTimestamp(11, now);
+            ps.setTimestamp(12, now);
+            ps.setString(13, auditor);
+            ps.setString(14, auditor);
+        });
+    }
+
+    private static <T> Map<Long, T> loadById(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+}
@@ -0,0 +1,85 @@
+-- PostgreSQL objects that Hibernate's ddl-auto cannot express. Runs on every startup after
+-- Hibernate has updated the tables (spring.jpa.defer-datasource-initialization), so every
+-- statement must be idempotent.
+
+-- Trigram indexes for the search* repository queries. They serve LIKE '%term%' on the
+-- lower-cased columns, which a B-tree index cannot, and similarity() for ranking.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_product_name_trgm ON product USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_generic_name_trgm ON generic USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_dosage_form_name_trgm ON dosage_form USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_medicine_type_name_trgm ON medicine_type USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_manufacturer_name_trgm ON manufacturer USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_manufacturer_phone_trgm ON manufacturer USING gin (phone gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_manufacturer_email_trgm ON manufacturer USING gin (lower(email) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_customer_name_trgm ON customer USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_customer_phone_trgm ON customer USING gin (phone gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_customer_code_trgm ON customer USING gin (lower(customer_code) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_supplier_name_trgm ON supplier USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_supplier_phone_trgm ON supplier USING gin (phone gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_supplier_email_trgm ON supplier USING gin (lower(email) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+
+-- Stock key of an inventory row. NULLs are distinct in a unique constraint, so
+-- uk_inventory_product_package_batch_expiry never matches rows without package, batch or expiry;
+-- this index treats them as equal and is the conflict target of the InventoryLedgerService upsert.
+-- Rows that were duplicated under that rule are merged into the oldest one first. This is a one-off
+-- migration: each statement is guarded by the index not existing yet, which PostgreSQL checks once
+-- before the plan runs, so after the first start they neither scan nor lock any rows. (A DO block
+-- cannot be used, the script is split into statements at every semicolon.)
+UPDATE sale_item s SET inventory_id = d.keeper_id
+FROM (SELECT id, min(id) OVER (PARTITION BY product_id, COALESCE(product_package_id, 0),
+             COALESCE(batch_number, ''), COALESCE(expiry_date, DATE '0001-01-01')) AS keeper_id
+      FROM inventory) d
+WHERE s.inventory_id = d.id AND d.id <> d.keeper_id
+  AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = current_schema() AND indexname = 'uk_inventory_stock_key');
+
+UPDATE stock_movement m SET inventory_id = d.keeper_id
+FROM (SELECT id, min(id) OVER (PARTITION BY product_id, COALESCE(product_package_id, 0),
+             COALESCE(batch_number, ''), COALESCE(expiry_date, DATE '0001-01-01')) AS keeper_id
+      FROM inventory) d
+WHERE m.inventory_id = d.id AND d.id <> d.keeper_id
+  AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = current_schema() AND indexname = 'uk_inventory_stock_key');
+
+UPDATE inventory i SET quantity = t.quantity, reserved_quantity = t.reserved_quantity,
+       available_quantity = t.quantity - t.reserved_quantity
+FROM (SELECT min(id) AS keeper_id, sum(quantity) AS quantity, sum(reserved_quantity) AS reserved_quantity
+      FROM inventory
+      GROUP BY product_id, COALESCE(product_package_id, 0), COALESCE(batch_number, ''),
+               COALESCE(expiry_date, DATE '0001-01-01')
+      HAVING count(*) > 1) t
+WHERE i.id = t.keeper_id
+  AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = current_schema() AND indexname = 'uk_inventory_stock_key');
+
+DELETE FROM inventory i
+USING (SELECT id, min(id) OVER (PARTITION BY product_id, COALESCE(product_package_id, 0),
+              COALESCE(batch_number, ''), COALESCE(expiry_date, DATE '0001-01-01')) AS keeper_id
+       FROM inventory) d
+WHERE i.id = d.id AND d.id <> d.keeper_id
+  AND NOT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = current_schema() AND indexname = 'uk_inventory_stock_key');
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_inventory_stock_key ON inventory (product_id,
+    COALESCE(product_package_id, 0), COALESCE(batch_number, ''), COALESCE(expiry_date, DATE '0001-01-01'));
+
+-- Document number sequences. Each nextval reserves a block of 50 values that
+-- DocumentNumberGenerator.BLOCK_SIZE hands out from memory, so the increment must match it.
+CREATE SEQUENCE IF NOT EXISTS sale_number_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stock_in_number_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS customer_code_seq START WITH 1 INCREMENT BY 50;
+
+-- Low stock. The partial index holds just the active batches at or below their reorder level and
+-- is the candidate set of ReorderService. Sold-out batches leave it when the InventoryLedgerService
+-- receives new stock of their product and package and deactivates them.
+CREATE INDEX IF NOT EXISTS idx_inventory_low_stock ON inventory (product_id, product_package_id)
+    WHERE is_active = true AND available_quantity <= reorder_level;
+
+-- Expiry tracking. Only batches that still hold units are indexed, so the ExpiryService reads the
+-- near-expiry and expired stock without passing the sold-out batches that make up most of inventory.
+CREATE INDEX IF NOT EXISTS idx_inventory_expiry_stocked ON inventory (expiry_date) WHERE quantity > 0;
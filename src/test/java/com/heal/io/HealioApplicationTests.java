@@ -1,9 +1,9 @@
 package com.heal.io;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
+import com.heal.io.support.DatabaseTest;
 
-@SpringBootTest
+@DatabaseTest
 class HealioApplicationTests {
 
 	@Test
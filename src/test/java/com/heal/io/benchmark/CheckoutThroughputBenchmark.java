@@ -0,0 +1,73 @@
+package com.heal.io.benchmark;
+
+import com.heal.io.HealioApplication;
+import com.heal.io.entity.Product;
+import com.heal.io.support.StockFixture;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkouts per second from 16 counters selling 1 to 3 units of 20 products, through
+ * {@code SaleCheckoutService} with the application context of the tests. The counters of a busy
+ * pharmacy need at least 200 checkouts per second. Runs in the {@code healio_test} schema, which
+ * is emptied afterwards; needs the test database:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heal.io.benchmark.CheckoutThroughputBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutThroughputBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private StockFixture stock;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(HealioApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run();
+        stock = context.getAutowireCapableBeanFactory().createBean(StockFixture.class);
+        products = stock.products("Checkout benchmark", 20);
+        for (Product product : products) {
+            stock.receive(product, LocalDate.now().plusYears(2), 1_000_000, "1.00");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stock.clear();
+        context.close();
+    }
+
+    @Benchmark
+    public void checkout(Blackhole blackhole) {
+        Product product = products.get(ThreadLocalRandom.current().nextInt(products.size()));
+        blackhole.consume(stock.checkout(product, 1 + ThreadLocalRandom.current().nextInt(3), BigDecimal.TEN));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CheckoutThroughputBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
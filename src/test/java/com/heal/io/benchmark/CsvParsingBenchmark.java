@@ -0,0 +1,95 @@
+package com.heal.io.benchmark;
+
+import com.heal.io.service.CsvTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the bundled medicine.csv with the former line-splitting parser and with
+ * {@link CsvTokenizer}. Run from the project root:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heal.io.benchmark.CsvParsingBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParsingBenchmark {
+
+    private String content;
+
+    @Setup
+    public void load() throws IOException {
+        content = Files.readString(Path.of("medicine.csv"), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void readLineAndSplit(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = parseCsvLine(line);
+                for (String value : values) {
+                    blackhole.consume(value.trim());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader(content))) {
+            while (csv.next()) {
+                for (int i = 0; i < csv.getFieldCount(); i++) {
+                    blackhole.consume(csv.trimmedField(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * The parser MedicineCsvImportService used before CsvTokenizer, kept as the baseline.
+     */
+    private static String[] parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        boolean inQuotes = false;
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                values.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+
+        return values.toArray(new String[0]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CsvParsingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+package com.heal.io.benchmark;
+
+import com.heal.io.service.DashboardMetricsService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former dashboard queries, five statements with {@code DATE(sale_date) = CURRENT_DATE}
+ * and today's total read twice, with the single range query of {@code DashboardMetricsService} on
+ * 5M sales. The data lives in its own {@code dashboard_benchmark} schema and is seeded on the first
+ * run. Needs a PostgreSQL database, by default the application's:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heal.io.benchmark.DashboardQueryBenchmark \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/healio_db -Dbenchmark.db.user=postgres -Dbenchmark.db.password=root
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashboardQueryBenchmark {
+
+    // As the former DashboardController ran them: SaleRepository's total twice, then the counts
+    private static final String[] LEGACY_SQL = {
+            "SELECT count(*) FROM product WHERE is_active = true",
+            "SELECT COALESCE(SUM(total_amount), 0) FROM sale WHERE DATE(sale_date) = CURRENT_DATE AND sale_status = 'COMPLETED'",
+            "SELECT COALESCE(SUM(total_amount), 0) FROM sale WHERE DATE(sale_date) = CURRENT_DATE AND sale_status = 'COMPLETED'",
+            "SELECT count(*) FROM inventory WHERE available_quantity <= reorder_level AND is_active = true",
+            "SELECT count(*) FROM customer WHERE is_active = true",
+            "SELECT COUNT(*) FROM sale WHERE DATE(sale_date) = CURRENT_DATE AND sale_status = 'COMPLETED'",
+            "SELECT COUNT(*) FROM sale WHERE DATE(sale_date) = CURRENT_DATE AND sale_status = 'COMPLETED'"
+    };
+
+    // Brings a schema seeded before low stock was counted per product and package up to the seed script
+    private static final String[] UPGRADE_SQL = {
+            "ALTER TABLE dashboard_benchmark.inventory ADD COLUMN IF NOT EXISTS product_package_id bigint, " +
+            "ADD COLUMN IF NOT EXISTS max_stock_level integer",
+            "CREATE INDEX IF NOT EXISTS idx_bench_inventory_low_stock ON dashboard_benchmark.inventory " +
+            "(product_id, product_package_id) WHERE is_active = true AND available_quantity <= reorder_level"
+    };
+
+    private Connection connection;
+    private PreparedStatement[] legacy;
+    private PreparedStatement metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/healio_db"),
+                System.getProperty("benchmark.db.user", "postgres"),
+                System.getProperty("benchmark.db.password", "root"));
+        seedIfMissing();
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : UPGRADE_SQL) {
+                statement.execute(sql);
+            }
+            statement.execute("SET search_path TO dashboard_benchmark, public");
+        }
+        legacy = new PreparedStatement[LEGACY_SQL.length];
+        for (int i = 0; i < LEGACY_SQL.length; i++) {
+            legacy[i] = connection.prepareStatement(LEGACY_SQL[i]);
+        }
+        LocalDate today = LocalDate.now();
+        metrics = connection.prepareStatement(DashboardMetricsService.METRICS_SQL);
+        metrics.setTimestamp(1, Timestamp.valueOf(today.atStartOfDay()));
+        metrics.setTimestamp(2, Timestamp.valueOf(today.plusDays(1).atStartOfDay()));
+    }
+
+    private void seedIfMissing() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT count(*) FROM information_schema.tables WHERE table_schema = 'dashboard_benchmark'")) {
+            rs.next();
+            if (rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("benchmark/dashboard-benchmark-seed.sql"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void legacyDashboard(Blackhole blackhole) throws SQLException {
+        for (PreparedStatement statement : legacy) {
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                blackhole.consume(rs.getObject(1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void metricsQuery(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = metrics.executeQuery()) {
+            rs.next();
+            for (int column = 1; column <= 5; column++) {
+                blackhole.consume(rs.getObject(column));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DashboardQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.heal.io.benchmark;
+
+import com.heal.io.service.CsvTokenizer;
+import com.heal.io.service.LegacyPackageParser;
+import com.heal.io.service.PackagePriceExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts packages from every row of medicine.csv with the former regex-per-row parser and
+ * with {@link PackagePriceExtractor}. Run from the project root:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heal.io.benchmark.PackagePriceExtractionBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackagePriceExtractionBenchmark {
+
+    private final PackagePriceExtractor extractor = new PackagePriceExtractor();
+    private List<String[]> rows;
+
+    @Setup
+    public void load() throws IOException {
+        rows = new ArrayList<>();
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(Path.of("medicine.csv"), StandardCharsets.UTF_8))) {
+            csv.next();
+            while (csv.next()) {
+                if (csv.getFieldCount() >= 9) {
+                    rows.add(new String[] {
+                            csv.trimmedField(8),
+                            csv.getFieldCount() > 9 ? csv.trimmedField(9) : "",
+                            csv.trimmedField(4)});
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyRegexPerRow(Blackhole blackhole) {
+        for (String[] row : rows) {
+            blackhole.consume(LegacyPackageParser.parse(row[0], row[1], row[2]));
+        }
+    }
+
+    @Benchmark
+    public void precompiledExtractor(Blackhole blackhole) {
+        for (String[] row : rows) {
+            blackhole.consume(extractor.extract(row[0], row[1], row[2]));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PackagePriceExtractionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
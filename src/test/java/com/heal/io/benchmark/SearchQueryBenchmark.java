@@ -0,0 +1,164 @@
+package com.heal.io.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former {@code LOWER(col) LIKE '%term%'} searches with the trigram-indexed, ranked
+ * searches of the repositories on 1M products and 500k customers. The data lives in its own
+ * {@code search_benchmark} schema and is seeded on the first run. Each backend runs as a separate
+ * trial: {@code LIKE} drops the trigram indexes so it sees the schema the LIKE queries were written
+ * for, {@code TRIGRAM} creates them. Needs a PostgreSQL database, by default the application's:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.heal.io.benchmark.SearchQueryBenchmark \
+ *     -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/healio_db -Dbenchmark.db.user=postgres -Dbenchmark.db.password=root
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+
+    // Queries as Hibernate generated them from the former JPQL: implicit joins and an OR across tables
+    private static final String LIKE_PRODUCT_SQL =
+            "SELECT p.id, p.name FROM product p JOIN manufacturer m ON m.id = p.manufacturer_id " +
+            "JOIN generic g ON g.id = p.generic_id WHERE p.is_active = true AND " +
+            "(LOWER(p.name) LIKE LOWER('%' || ? || '%') OR LOWER(m.name) LIKE LOWER('%' || ? || '%') " +
+            "OR LOWER(g.name) LIKE LOWER('%' || ? || '%')) OFFSET 0 LIMIT 10";
+
+    private static final String LIKE_CUSTOMER_SQL =
+            "SELECT c.id, c.name FROM customer c WHERE c.is_active = true AND " +
+            "(LOWER(c.name) LIKE LOWER('%' || ? || '%') OR c.phone LIKE '%' || ? || '%' " +
+            "OR LOWER(c.customer_code) LIKE LOWER('%' || ? || '%')) OFFSET 0 LIMIT 10";
+
+    // Same shape as ProductRepository.searchProducts and CustomerRepository.searchCustomers
+    private static final String TRIGRAM_PRODUCT_SQL =
+            "SELECT p.id, p.name FROM product p WHERE p.is_active = true AND p.id IN (" +
+            "SELECT id FROM product WHERE LOWER(name) LIKE LOWER('%' || ? || '%') " +
+            "UNION SELECT pm.id FROM product pm JOIN manufacturer m ON m.id = pm.manufacturer_id " +
+            "WHERE LOWER(m.name) LIKE LOWER('%' || ? || '%') " +
+            "UNION SELECT pg.id FROM product pg JOIN generic g ON g.id = pg.generic_id " +
+            "WHERE LOWER(g.name) LIKE LOWER('%' || ? || '%')) ORDER BY " +
+            "CASE WHEN LOWER(p.name) = LOWER(?) THEN 0 WHEN LOWER(p.name) LIKE LOWER(? || '%') THEN 1 " +
+            "WHEN LOWER(p.name) LIKE LOWER('%' || ? || '%') THEN 2 ELSE 3 END, " +
+            "similarity(LOWER(p.name), LOWER(?)) DESC, p.name OFFSET 0 LIMIT 10";
+
+    private static final String TRIGRAM_CUSTOMER_SQL =
+            "SELECT c.id, c.name FROM customer c WHERE c.is_active = true AND " +
+            "(LOWER(c.name) LIKE LOWER('%' || ? || '%') OR c.phone LIKE '%' || ? || '%' " +
+            "OR LOWER(c.customer_code) LIKE LOWER('%' || ? || '%')) ORDER BY " +
+            "CASE WHEN LOWER(c.customer_code) = LOWER(?) OR c.phone = ? THEN 0 " +
+            "WHEN LOWER(c.name) LIKE LOWER(? || '%') THEN 1 ELSE 2 END, " +
+            "similarity(LOWER(c.name), LOWER(?)) DESC, c.name OFFSET 0 LIMIT 10";
+
+    private static final String[] TRIGRAM_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_bench_product_name_trgm ON product USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_bench_manufacturer_name_trgm ON manufacturer USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_bench_generic_name_trgm ON generic USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_bench_customer_name_trgm ON customer USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_bench_customer_phone_trgm ON customer USING gin (phone gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_bench_customer_code_trgm ON customer USING gin (lower(customer_code) gin_trgm_ops)"
+    };
+
+    @Param({"LIKE", "TRIGRAM"})
+    public String backend;
+
+    @Param({"napa", "xitro", "cust-00421", "hossain 1234"})
+    public String term;
+
+    private Connection connection;
+    private PreparedStatement productSearch;
+    private PreparedStatement customerSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/healio_db"),
+                System.getProperty("benchmark.db.user", "postgres"),
+                System.getProperty("benchmark.db.password", "root"));
+        seedIfMissing();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO search_benchmark, public");
+            for (String index : TRIGRAM_INDEXES) {
+                if (backend.equals("TRIGRAM")) {
+                    statement.execute(index);
+                } else {
+                    statement.execute("DROP INDEX IF EXISTS " + index.split(" ")[5]);
+                }
+            }
+            statement.execute("ANALYZE");
+        }
+
+        boolean trigram = backend.equals("TRIGRAM");
+        productSearch = connection.prepareStatement(trigram ? TRIGRAM_PRODUCT_SQL : LIKE_PRODUCT_SQL);
+        customerSearch = connection.prepareStatement(trigram ? TRIGRAM_CUSTOMER_SQL : LIKE_CUSTOMER_SQL);
+        bindAll(productSearch);
+        bindAll(customerSearch);
+    }
+
+    private void seedIfMissing() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT count(*) FROM information_schema.tables WHERE table_schema = 'search_benchmark'")) {
+            rs.next();
+            if (rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("benchmark/search-benchmark-seed.sql"));
+    }
+
+    private void bindAll(PreparedStatement statement) throws SQLException {
+        int parameters = statement.getParameterMetaData().getParameterCount();
+        for (int i = 1; i <= parameters; i++) {
+            statement.setString(i, term);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void productSearch(Blackhole blackhole) throws SQLException {
+        consume(productSearch, blackhole);
+    }
+
+    @Benchmark
+    public void customerSearch(Blackhole blackhole) throws SQLException {
+        consume(customerSearch, blackhole);
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs.getLong(1));
+                blackhole.consume(rs.getString(2));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SearchQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.heal.io.controller;
+
+import com.heal.io.entity.*;
+import com.heal.io.repository.*;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.QueryCountInspector;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the list pages and JSON endpoints against N+1 loading: every seeded product has its own
+ * category, manufacturer and generic, so a lazy load per row would show up as one statement per
+ * product.
+ */
+@DatabaseTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.heal.io.support.QueryCountInspector")
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser
+class ListEndpointQueryCountTest {
+
+    private static final int PRODUCTS = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCategoryRepository productCategoryRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private GenericRepository genericRepository;
+
+    @Autowired
+    private DosageFormRepository dosageFormRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            String suffix = "querycount-" + i;
+            Manufacturer manufacturer = manufacturerRepository.save(Manufacturer.builder().name("Maker " + suffix).build());
+            productRepository.save(Product.builder()
+                    .name("Zqc Product " + i)
+                    .productCategory(productCategoryRepository.save(ProductCategory.builder().name("Category " + suffix).build()))
+                    .manufacturer(manufacturer)
+                    .generic(genericRepository.save(Generic.builder().name("Generic " + suffix).build()))
+                    .dosageForm(dosageFormRepository.save(DosageForm.builder().name("Form " + suffix).build()))
+                    .strength("500 mg")
+                    .build());
+            supplierRepository.save(Supplier.builder().name("Supplier " + suffix).manufacturers(Set.of(manufacturer)).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void stockInProductListIsOneQuery() throws Exception {
+        assertThat(statementsFor("/stock-in/api/products")).isEqualTo(1);
+    }
+
+    @Test
+    void productListLoadsRelationsWithThePage() throws Exception {
+        // Page and, when there is more than one page, count
+        assertThat(statementsFor("/products?size=" + PRODUCTS)).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void productSearchLoadsRelationsWithThePage() throws Exception {
+        // Page of ids, count, and the products with their relations
+        assertThat(statementsFor("/products?size=" + PRODUCTS + "&search=Zqc")).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void productTypeaheadIsAtMostOneQuery() throws Exception {
+        // None when served from the search index
+        assertThat(statementsFor("/products/api/search?q=Zqc")).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void supplierListLoadsManufacturersWithTheSuppliers() throws Exception {
+        assertThat(statementsFor("/suppliers")).isEqualTo(1);
+    }
+
+    private int statementsFor(String url) throws Exception {
+        QueryCountInspector.reset();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return QueryCountInspector.count();
+    }
+}
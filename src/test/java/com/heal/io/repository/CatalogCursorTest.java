@@ -0,0 +1,25 @@
+package com.heal.io.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogCursorTest {
+
+    @Test
+    void roundTripsNamesWithAnyCharacters() {
+        CatalogCursor cursor = new CatalogCursor("Napa Extra 500mg/65mg, (tablet) 💊", 42L);
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(CatalogCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsTokensItDidNotProduce() {
+        assertThatThrownBy(() -> CatalogCursor.decode("not a cursor!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CatalogCursor.decode("bmFwYQ")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvTokenizerTest {
+
+    @Test
+    void splitsSimpleRecords() throws IOException {
+        List<String[]> records = readAll("a,b,c\n1,,3\n");
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0)).containsExactly("a", "b", "c");
+        assertThat(records.get(1)).containsExactly("1", "", "3");
+    }
+
+    @Test
+    void handlesQuotedSeparatorsEscapedQuotesAndLineBreaks() throws IOException {
+        List<String[]> records = readAll("\"a,b\",\"say \"\"hi\"\"\",\"multi\r\nline\"\r\nnext,row");
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0)).containsExactly("a,b", "say \"hi\"", "multi\r\nline");
+        assertThat(records.get(1)).containsExactly("next", "row");
+    }
+
+    @Test
+    void reportsLineNumberWhereRecordStarts() throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader("h\n\"x\ny\"\nz\n"), 4)) {
+            assertThat(csv.next()).isTrue();
+            assertThat(csv.getLineNumber()).isEqualTo(1);
+            assertThat(csv.next()).isTrue();
+            assertThat(csv.getLineNumber()).isEqualTo(2);
+            assertThat(csv.next()).isTrue();
+            assertThat(csv.getLineNumber()).isEqualTo(4);
+            assertThat(csv.next()).isFalse();
+        }
+    }
+
+    @Test
+    void trimsWithoutChangingFieldContent() throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader("  padded  ,\" \",x"))) {
+            assertThat(csv.next()).isTrue();
+            assertThat(csv.trimmedField(0)).isEqualTo("padded");
+            assertThat(csv.field(0)).isEqualTo("  padded  ");
+            assertThat(csv.trimmedField(1)).isEmpty();
+        }
+    }
+
+    @Test
+    void matchesLineSplittingOnBundledMedicineFile() throws IOException {
+        Path file = Path.of("medicine.csv");
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            int records = 0;
+            while (csv.next()) {
+                assertThat(csv.getLineNumber()).isEqualTo(records + 1);
+                assertThat(String.join(",", csv.fields()))
+                        .isEqualTo(lines.get(records).replace("\"", ""));
+                records++;
+            }
+            assertThat(records).isEqualTo(lines.size());
+        }
+    }
+
+    private static List<String[]> readAll(String content) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader(content), 8)) {
+            while (csv.next()) {
+                records.add(csv.fields());
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,163 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DashboardStreamTest {
+
+    private static final DashboardMetricsService.DashboardMetrics METRICS =
+            new DashboardMetricsService.DashboardMetrics(120, new BigDecimal("1500.00"), 12, 3, 40);
+
+    private final FakeMetrics metrics = new FakeMetrics();
+    private final DashboardStream stream = new DashboardStream(metrics);
+
+    @Test
+    void sendsEveryTileWithoutPreviousMetrics() {
+        assertThat(DashboardStream.changes(null, METRICS)).containsOnlyKeys(
+                "totalProducts", "todaySales", "todaySalesCount", "lowStockCount", "totalCustomers");
+    }
+
+    @Test
+    void sendsOnlyChangedTiles() {
+        DashboardMetricsService.DashboardMetrics afterSale =
+                new DashboardMetricsService.DashboardMetrics(120, new BigDecimal("1575.50"), 13, 3, 40);
+
+        assertThat(DashboardStream.changes(METRICS, afterSale))
+                .containsOnlyKeys("todaySales", "todaySalesCount")
+                .containsEntry("todaySalesCount", 13L);
+    }
+
+    @Test
+    void comparesAmountsByValue() {
+        DashboardMetricsService.DashboardMetrics rescaled =
+                new DashboardMetricsService.DashboardMetrics(120, new BigDecimal("1500"), 12, 3, 40);
+
+        assertThat(DashboardStream.changes(METRICS, rescaled)).isEmpty();
+    }
+
+    @Test
+    void addsCommittedSalesWithoutRecomputing() {
+        stream.current();
+
+        sell();
+        sell();
+        stream.refresh();
+
+        assertThat(stream.current().todaySalesCount()).isEqualTo(2);
+        assertThat(stream.current().todaySales()).isEqualByComparingTo("20");
+        assertThat(metrics.computations).isEqualTo(1);
+    }
+
+    @Test
+    void aSaleOfAnotherDayIsCountedByRecomputing() {
+        stream.current();
+
+        stream.onSaleCompleted(new SaleCompletedEvent(1L, LocalDateTime.now().minusDays(1), BigDecimal.TEN));
+        assertThat(metrics.computations).isEqualTo(1);
+
+        stream.refresh();
+        assertThat(metrics.computations).isEqualTo(2);
+    }
+
+    @Test
+    void aSaleCommittedWhileRecomputingIsNotLost() {
+        stream.current();
+        markStale();
+        // Committed after the query read the totals, reported before the result is published
+        metrics.duringCompute = this::sell;
+
+        stream.refresh();
+        assertThat(stream.current().todaySalesCount()).isZero();
+
+        stream.refresh();
+        assertThat(stream.current().todaySalesCount()).isEqualTo(1);
+        assertThat(metrics.computations).isEqualTo(3);
+    }
+
+    @Test
+    void aSaleCommittedDuringTheFirstComputationIsNotLost() {
+        metrics.duringCompute = this::sell;
+
+        assertThat(stream.current().todaySalesCount()).isZero();
+
+        stream.refresh();
+        assertThat(stream.current().todaySalesCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aFailedRecomputationIsRetried() {
+        stream.current();
+        markStale();
+        metrics.duringCompute = () -> {
+            throw new IllegalStateException("Database unavailable");
+        };
+
+        assertThatThrownBy(stream::refresh).isInstanceOf(IllegalStateException.class);
+        sell();
+
+        stream.refresh();
+        assertThat(stream.current().todaySalesCount()).isEqualTo(1);
+        assertThat(metrics.computations).isEqualTo(3);
+    }
+
+    @Test
+    void stockChangesOnlyRecountLowStock() {
+        stream.current();
+        metrics.lowStock = 5;
+
+        stream.onInventoryChanged(new InventoryChangedEvent(List.of(1L)));
+        stream.refresh();
+
+        assertThat(stream.current().lowStockCount()).isEqualTo(5);
+        assertThat(metrics.computations).isEqualTo(1);
+    }
+
+    private void sell() {
+        long saleId = ++metrics.sales;
+        stream.onSaleCompleted(new SaleCompletedEvent(saleId, LocalDateTime.now(), BigDecimal.TEN));
+    }
+
+    // A sale of yesterday cannot be added to today's tiles and asks for a recomputation
+    private void markStale() {
+        stream.onSaleCompleted(new SaleCompletedEvent(0L, LocalDateTime.now().minusDays(1), BigDecimal.TEN));
+    }
+
+    /**
+     * Tiles of a database that holds {@code sales} sales of 10 today.
+     */
+    private static class FakeMetrics extends DashboardMetricsService {
+
+        long sales;
+        long lowStock;
+        int computations;
+        Runnable duringCompute = () -> {
+        };
+
+        FakeMetrics() {
+            super(null, null);
+        }
+
+        @Override
+        public DashboardMetrics compute(LocalDate day) {
+            computations++;
+            long counted = sales;
+            Runnable during = duringCompute;
+            duringCompute = () -> {
+            };
+            during.run();
+            return new DashboardMetrics(120, BigDecimal.TEN.multiply(BigDecimal.valueOf(counted)), counted, lowStock, 40);
+        }
+
+        @Override
+        public long countLowStock() {
+            return lowStock;
+        }
+    }
+}
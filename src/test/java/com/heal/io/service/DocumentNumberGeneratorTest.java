@@ -0,0 +1,94 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentNumberGeneratorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T09:30:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void formatsPrefixDayAndValue() {
+        DocumentNumberGenerator generator = new DocumentNumberGenerator(type -> 1, CLOCK);
+
+        assertThat(generator.next(DocumentType.SALE)).isEqualTo("SAL-261017-000001");
+        assertThat(generator.next(DocumentType.SALE)).isEqualTo("SAL-261017-000002");
+        assertThat(generator.next(DocumentType.CUSTOMER)).isEqualTo("CUST-261017-000001");
+    }
+
+    @Test
+    void fetchesOneBlockPerBlockSizeValues() {
+        // Stands in for a sequence with INCREMENT BY BLOCK_SIZE
+        AtomicLong sequence = new AtomicLong(1 - DocumentNumberGenerator.BLOCK_SIZE);
+        AtomicInteger calls = new AtomicInteger();
+        DocumentNumberGenerator generator = new DocumentNumberGenerator(type -> {
+            calls.incrementAndGet();
+            return sequence.addAndGet(DocumentNumberGenerator.BLOCK_SIZE);
+        }, CLOCK);
+
+        for (int i = 1; i <= DocumentNumberGenerator.BLOCK_SIZE * 3; i++) {
+            assertThat(generator.nextValue(DocumentType.STOCK_IN)).isEqualTo(i);
+        }
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void neverHandsOutAValueTwiceUnderContention() throws Exception {
+        int threads = 16;
+        int perThread = 250_000;
+        AtomicLong sequence = new AtomicLong(1 - DocumentNumberGenerator.BLOCK_SIZE);
+        DocumentNumberGenerator generator = new DocumentNumberGenerator(
+                type -> sequence.addAndGet(DocumentNumberGenerator.BLOCK_SIZE), CLOCK);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long[] values = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        values[i] = generator.nextValue(DocumentType.SALE);
+                    }
+                    return values;
+                }));
+            }
+
+            long[] all = new long[threads * perThread];
+            int offset = 0;
+            for (Future<long[]> result : results) {
+                long[] values = result.get();
+                // Each thread sees increasing values
+                for (int i = 1; i < values.length; i++) {
+                    assertThat(values[i]).isGreaterThan(values[i - 1]);
+                }
+                System.arraycopy(values, 0, all, offset, values.length);
+                offset += values.length;
+            }
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                if (all[i] == all[i - 1]) {
+                    throw new AssertionError("Value " + all[i] + " was handed out twice");
+                }
+            }
+            // Blocks are only fetched when the previous one is used up, so there are no gaps
+            assertThat(all[0]).isEqualTo(1);
+            assertThat(all[all.length - 1]).isEqualTo(all.length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
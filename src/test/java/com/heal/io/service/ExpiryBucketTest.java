@@ -0,0 +1,28 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryBucketTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 31);
+
+    @Test
+    void batchesGoToTheFirstBucketTheyFit() {
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.minusDays(1), TODAY)).isEqualTo(ExpiryService.ExpiryBucket.EXPIRED);
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY, TODAY)).isEqualTo(ExpiryService.ExpiryBucket.TODAY);
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.plusDays(1), TODAY)).isEqualTo(ExpiryService.ExpiryBucket.WEEK);
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.plusDays(7), TODAY)).isEqualTo(ExpiryService.ExpiryBucket.WEEK);
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.plusDays(8), TODAY)).isEqualTo(ExpiryService.ExpiryBucket.MONTH);
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.plusDays(90), TODAY)).isEqualTo(ExpiryService.ExpiryBucket.QUARTER);
+    }
+
+    @Test
+    void batchesBeyondTheLastBucketOrWithoutExpiryAreNotTracked() {
+        assertThat(ExpiryService.ExpiryBucket.of(TODAY.plusDays(91), TODAY)).isNull();
+        assertThat(ExpiryService.ExpiryBucket.of(null, TODAY)).isNull();
+    }
+}
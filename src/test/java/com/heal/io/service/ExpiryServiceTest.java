@@ -0,0 +1,110 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.service.ExpiryService.BucketSummary;
+import com.heal.io.service.ExpiryService.ExpiryBucket;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Expiry quarantine and buckets against the test schema.
+ */
+@DatabaseTest
+@RecordApplicationEvents
+class ExpiryServiceTest {
+
+    @Autowired
+    private ExpiryService expiryService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void quarantineDeactivatesStockedBatchesThatExpired() {
+        // Quarantined as of a later day, so the scheduled run cannot get to these batches first
+        LocalDate today = LocalDate.now();
+        LocalDate soon = today.plusDays(10);
+        Product product = stock.product("Quarantine");
+        stock.receive(product, soon, 5, "1");
+        stock.receive(product, today.plusDays(60), 5, "1");
+        Product soldOut = stock.product("Sold out");
+        stock.receive(soldOut, soon, 2, "1");
+        stock.checkout(soldOut, 2, BigDecimal.ONE);
+        events.clear();
+
+        assertThat(expiryService.quarantine(today.plusDays(20))).isEqualTo(1);
+
+        assertThat(active(product, soon)).isFalse();
+        assertThat(active(product, today.plusDays(60))).isTrue();
+        assertThat(active(soldOut, soon)).isTrue();
+        assertThat(events.stream(InventoryChangedEvent.class).map(InventoryChangedEvent::productIds).toList())
+                .containsExactly(List.of(product.getId()));
+
+        events.clear();
+        assertThat(expiryService.quarantine(today.plusDays(20))).isZero();
+        assertThat(events.stream(InventoryChangedEvent.class)).isEmpty();
+    }
+
+    @Test
+    void bucketsListExpiredBatchesAfterQuarantineAndDropOtherInactiveOnes() {
+        LocalDate today = LocalDate.now();
+        Product product = stock.product("Buckets");
+        stock.receive(product, today.minusDays(1), 4, "2");
+        stock.receive(product, today, 3, "1");
+        stock.receive(product, today.plusDays(5), 2, "1");
+        stock.receive(product, today.plusDays(20), 1, "1");
+        stock.receive(product, today.plusDays(200), 1, "1");
+
+        expiryService.refresh();
+
+        assertThat(active(product, today.minusDays(1))).isFalse();
+        assertThat(expiryService.summary()).containsExactly(
+                new BucketSummary(ExpiryBucket.EXPIRED, -1, 1, 4, new BigDecimal("8.00")),
+                new BucketSummary(ExpiryBucket.TODAY, 0, 1, 3, new BigDecimal("3.00")),
+                new BucketSummary(ExpiryBucket.WEEK, 7, 1, 2, new BigDecimal("2.00")),
+                new BucketSummary(ExpiryBucket.MONTH, 30, 1, 1, new BigDecimal("1.00")),
+                new BucketSummary(ExpiryBucket.QUARTER, 90, 0, 0, BigDecimal.ZERO));
+        assertThat(expiryService.batches(ExpiryBucket.EXPIRED))
+                .extracting(ExpiryService.ExpiringBatch::productName, ExpiryService.ExpiringBatch::expiryDate,
+                        ExpiryService.ExpiringBatch::quantity)
+                .containsExactly(tuple("Buckets", today.minusDays(1), 4));
+
+        // Batches taken out before they expired are no longer listed
+        expiryService.quarantine(today.plusDays(6));
+        expiryService.refresh();
+
+        assertThat(expiryService.batches(ExpiryBucket.EXPIRED)).hasSize(1);
+        assertThat(expiryService.batches(ExpiryBucket.TODAY)).isEmpty();
+        assertThat(expiryService.batches(ExpiryBucket.WEEK)).isEmpty();
+        assertThat(expiryService.batches(ExpiryBucket.MONTH)).hasSize(1);
+    }
+
+    private boolean active(Product product, LocalDate expiry) {
+        return jdbcTemplate.queryForObject("SELECT is_active FROM inventory WHERE product_id = ? AND expiry_date = ?",
+                Boolean.class, product.getId(), expiry);
+    }
+}
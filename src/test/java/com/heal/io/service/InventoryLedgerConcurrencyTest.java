@@ -0,0 +1,92 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Inventory;
+import com.heal.io.entity.Product;
+import com.heal.io.repository.InventoryRepository;
+import com.heal.io.repository.StockMovementRepository;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many documents receiving the same stock at once must add up to exactly the units received.
+ * Runs against the test schema.
+ */
+@DatabaseTest
+class InventoryLedgerConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int DOCUMENTS_PER_THREAD = 25;
+    private static final int UNITS_PER_LINE = 3;
+    private static final LocalDate EXPIRY = LocalDate.of(2030, 1, 31);
+
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        product = stock.product("Ledger concurrency");
+    }
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void concurrentReceiptsOfOneStockKeepEveryUnit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int d = 0; d < DOCUMENTS_PER_THREAD; d++) {
+                    // Two lines for the same stock per document, without package or batch so the
+                    // NULL handling of the conflict target is exercised too
+                    InventoryLedgerService.Receipt line = new InventoryLedgerService.Receipt(product.getId(),
+                            null, null, EXPIRY, UNITS_PER_LINE, new BigDecimal("1.50"), null, null);
+                    inventoryLedgerService.receive("LEDGER-" + thread + "-" + d, List.of(line, line));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        List<Inventory> inventories = inventoryRepository.findByProductId(product.getId());
+        int expected = THREADS * DOCUMENTS_PER_THREAD * 2 * UNITS_PER_LINE;
+        assertThat(inventories).hasSize(1);
+        assertThat(inventories.get(0).getQuantity()).isEqualTo(expected);
+        assertThat(inventories.get(0).getAvailableQuantity()).isEqualTo(expected);
+        assertThat(stockMovementRepository.sumQuantityByInventoryId(inventories.get(0).getId())).isEqualTo(expected);
+        assertThat(stockMovementRepository.findByInventoryIdOrderByIdAsc(inventories.get(0).getId()))
+                .hasSize(THREADS * DOCUMENTS_PER_THREAD * 2);
+    }
+}
@@ -0,0 +1,53 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryLedgerServiceTest {
+
+    private static final LocalDate EXPIRY = LocalDate.of(2027, 6, 30);
+
+    @Test
+    void mergesLinesForTheSameStockKey() {
+        List<InventoryLedgerService.Receipt> merged = InventoryLedgerService.merge(List.of(
+                receipt(1L, 10L, EXPIRY, 5, "2.00"),
+                receipt(1L, 10L, EXPIRY, 7, null),
+                receipt(1L, 10L, null, 3, "2.50")));
+
+        assertThat(merged).hasSize(2);
+        assertThat(merged.get(0).expiryDate()).isNull();
+        assertThat(merged.get(1).quantity()).isEqualTo(12);
+        assertThat(merged.get(1).unitCost()).isEqualByComparingTo("2.00");
+    }
+
+    @Test
+    void treatsMissingPackageAndBatchLikeTheUniqueIndex() {
+        List<InventoryLedgerService.Receipt> merged = InventoryLedgerService.merge(List.of(
+                new InventoryLedgerService.Receipt(1L, null, null, EXPIRY, 1, null, null, null),
+                new InventoryLedgerService.Receipt(1L, 0L, "", EXPIRY, 2, null, null, null)));
+
+        assertThat(merged).singleElement().extracting(InventoryLedgerService.Receipt::quantity).isEqualTo(3);
+    }
+
+    @Test
+    void ordersLinesByStockKey() {
+        List<InventoryLedgerService.Receipt> merged = InventoryLedgerService.merge(List.of(
+                receipt(2L, 1L, EXPIRY, 1, null),
+                receipt(1L, 2L, EXPIRY, 1, null),
+                receipt(1L, 1L, EXPIRY, 1, null)));
+
+        assertThat(merged).extracting(r -> r.productId() + "/" + r.packageId())
+                .containsExactly("1/1", "1/2", "2/1");
+    }
+
+    private static InventoryLedgerService.Receipt receipt(Long productId, Long packageId, LocalDate expiry,
+                                                          int quantity, String unitCost) {
+        return new InventoryLedgerService.Receipt(productId, packageId, null, expiry, quantity,
+                unitCost != null ? new BigDecimal(unitCost) : null, null, null);
+    }
+}
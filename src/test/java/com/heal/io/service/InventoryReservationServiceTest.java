@@ -0,0 +1,168 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.Sale;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cart reservations against the test schema.
+ */
+@DatabaseTest
+class InventoryReservationServiceTest {
+
+    private static final LocalDate EARLY = LocalDate.now().plusMonths(3);
+    private static final LocalDate LATE = LocalDate.now().plusYears(2);
+    private static final String OTHER_NODE = "other-node";
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String cart = UUID.randomUUID().toString();
+    private final String otherCart = UUID.randomUUID().toString();
+    private Product product;
+
+    @BeforeEach
+    void createStock() {
+        product = stock.product("Reservation");
+        stock.receive(product, EARLY, 6, "1");
+        stock.receive(product, LATE, 4, "1");
+    }
+
+    @AfterEach
+    void clear() {
+        inventoryReservationService.release(cart);
+        inventoryReservationService.release(otherCart);
+        inventoryReservationService.flush();
+        stock.clear();
+    }
+
+    @Test
+    void cartsCannotReserveMoreThanIsLeft() {
+        InventoryReservationService.Reservation reservation = reserve(cart, 8);
+        assertThat(reservation.available()).isEqualTo(2);
+
+        assertThatThrownBy(() -> reserve(otherCart, 3)).isInstanceOf(IllegalStateException.class);
+        assertThat(reserve(otherCart, 2).available()).isZero();
+
+        // Lowering a line frees its units for the other carts
+        reserve(cart, 5);
+        assertThat(inventoryReservationService.available(List.of(product.getId()))).containsEntry(product.getId(), 3);
+    }
+
+    @Test
+    void flushedReservationsKeepOtherSalesFromTakingTheUnits() {
+        reserve(cart, 8);
+        inventoryReservationService.flush();
+
+        assertThat(reserved(EARLY)).isEqualTo(6);
+        assertThat(reserved(LATE)).isEqualTo(2);
+        assertThatThrownBy(() -> checkout(3, null)).isInstanceOf(IllegalStateException.class);
+
+        checkout(8, cart);
+        assertThat(reserved(EARLY)).isZero();
+        assertThat(reserved(LATE)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(available_quantity) FROM inventory WHERE product_id = ?",
+                Integer.class, product.getId())).isEqualTo(2);
+        assertThat(inventoryReservationService.available(List.of(product.getId()))).containsEntry(product.getId(), 2);
+    }
+
+    @Test
+    void failedCheckoutKeepsTheCartsReservations() {
+        reserve(cart, 4);
+
+        assertThatThrownBy(() -> checkout(11, cart)).isInstanceOf(IllegalStateException.class);
+        assertThat(inventoryReservationService.available(List.of(product.getId()))).containsEntry(product.getId(), 6);
+    }
+
+    @Test
+    void expiredReservationsAreReleased() {
+        reserve(cart, 10);
+        inventoryReservationService.flush();
+
+        inventoryReservationService.expire(Instant.now().plus(1, ChronoUnit.DAYS));
+        inventoryReservationService.flush();
+
+        assertThat(inventoryReservationService.available(List.of(product.getId()))).containsEntry(product.getId(), 10);
+        assertThat(reserved(EARLY)).isZero();
+        assertThat(reserved(LATE)).isZero();
+    }
+
+    @Test
+    void holdsOfOtherNodesAddUpAndSurviveARestartOfThisNode() {
+        holdOnOtherNode(3, Instant.now().plus(1, ChronoUnit.HOURS));
+        reserve(cart, 4);
+        inventoryReservationService.flush();
+
+        assertThat(reserved(EARLY)).isEqualTo(6);
+        assertThat(reserved(LATE)).isEqualTo(1);
+
+        // A restart releases this node's holds only
+        inventoryReservationService.resetReservedQuantities();
+
+        assertThat(reserved(EARLY)).isEqualTo(3);
+        assertThat(reserved(LATE)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM inventory_hold WHERE node_id = ?",
+                Integer.class, OTHER_NODE)).isEqualTo(1);
+    }
+
+    @Test
+    void expiredHoldsOfOtherNodesAreSwept() {
+        holdOnOtherNode(5, Instant.now().plus(1, ChronoUnit.HOURS));
+        reserve(cart, 1);
+        inventoryReservationService.flush();
+        assertThat(reserved(EARLY)).isEqualTo(6);
+
+        // The other node went away and stopped renewing its holds
+        jdbcTemplate.update("UPDATE inventory_hold SET expires_at = ? WHERE node_id = ?",
+                Timestamp.from(Instant.now().minus(1, ChronoUnit.MINUTES)), OTHER_NODE);
+        inventoryReservationService.expireAndFlush();
+
+        assertThat(reserved(EARLY)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM inventory_hold WHERE node_id = ?",
+                Integer.class, OTHER_NODE)).isZero();
+    }
+
+    private void holdOnOtherNode(int quantity, Instant expiresAt) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO inventory_hold (node_id, product_id, quantity, expires_at, is_active, " +
+                        "created_at, updated_at, created_by, last_modified_by) VALUES (?, ?, ?, ?, true, ?, ?, 'test', 'test')",
+                OTHER_NODE, product.getId(), quantity, Timestamp.from(expiresAt), now, now);
+    }
+
+    private InventoryReservationService.Reservation reserve(String cartId, int quantity) {
+        return inventoryReservationService.reserve(
+                new InventoryReservationService.ReservationRequest(cartId, product.getId(), quantity));
+    }
+
+    private Sale checkout(int quantity, String cartId) {
+        return stock.checkout(product, quantity, BigDecimal.TEN, "CASH", cartId);
+    }
+
+    private int reserved(LocalDate expiry) {
+        return jdbcTemplate.queryForObject("SELECT reserved_quantity FROM inventory WHERE product_id = ? AND expiry_date = ?",
+                Integer.class, product.getId(), expiry);
+    }
+}
@@ -0,0 +1,316 @@
+package com.heal.io.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verbatim copy of the regex-per-row package parsing that MedicineCsvImportService used before
+ * {@link PackagePriceExtractor}. Serves as the oracle for the golden test and as the benchmark baseline.
+ */
+public final class LegacyPackageParser {
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyPackageParser.class);
+
+    private static final Set<String> UNIT_PRICE_DOSAGE_FORMS = Set.of(
+        "Capsule",
+        "Capsule (Controlled Release)",
+        "Capsule (Delayed Release)",
+        "Capsule (Extended Release)",
+        "Capsule (Modified Release)",
+        "Capsule (Sustained Release)",
+        "Capsule (Timed Release)",
+        "Chewable Tablet",
+        "Chewing Gum Tablet",
+        "Dispersible Tablet",
+        "Effervescent Granules",
+        "Effervescent Tablet",
+        "Eye Capsule",
+        "Flash Tablet",
+        "IV Infusion",
+        "IV/SC Injection",
+        "Inhalation Capsule",
+        "Inhaler",
+        "Injection",
+        "Long Acting Tablet",
+        "MUPS Tablet",
+        "OROS Tablet",
+        "Oral Powder",
+        "Oral Soluble Film",
+        "Powder for Suspension",
+        "Retard Tablet",
+        "Sprinkle Capsule",
+        "Sublingual Tablet",
+        "Suppository",
+        "Tablet",
+        "Tablet (Controlled Release)",
+        "Tablet (Delayed Release)",
+        "Tablet (Enteric Coated)",
+        "Tablet (Extended Release)",
+        "Tablet (Immediate Release)",
+        "Tablet (Modified Release)",
+        "Tablet (Prolonged Release)",
+        "Tablet (Sustained Release)",
+        "Transdermal Patch",
+        "Vaginal Gel",
+        "Vaginal Pessary",
+        "Vaginal Suppository",
+        "Vaginal Tablet"
+    );
+
+    private LegacyPackageParser() {
+    }
+
+    public static List<PackageInfo> parse(String packageContainer, String packageSize, String dosageForm) {
+        return parsePackageInfo(packageContainer, packageSize, dosageForm).stream()
+                .map(info -> new PackageInfo(info.description, info.size, info.unitPrice, info.quantity, info.unit))
+                .toList();
+    }
+
+    private static List<Info> parsePackageInfo(String packageContainer, String packageSize, String dosageForm) {
+        List<Info> packages = new ArrayList<>();
+        Set<String> seenDescriptions = new HashSet<>(); // To avoid duplicates
+        
+        if (packageContainer == null || packageContainer.trim().isEmpty()) {
+            return packages;
+        }
+        
+        // Check if this dosage form should only extract unit price
+        boolean isUnitPriceDosageForm = UNIT_PRICE_DOSAGE_FORMS.contains(dosageForm);
+        
+        // Clean up the package container string - remove extra commas and parentheses
+        String cleaned = packageContainer.replaceAll(",\\s*,+", ",").trim();
+        
+        // Pattern 1: "Unit Price: ৳ X.XX" - explicit unit price entry
+        Pattern unitPricePattern = Pattern.compile("Unit\\s+Price:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+        Matcher unitPriceMatcher = unitPricePattern.matcher(cleaned);
+        
+        BigDecimal unitPriceValue = null;
+        while (unitPriceMatcher.find()) {
+            String priceStr = unitPriceMatcher.group(1).replace(",", "");
+            try {
+                unitPriceValue = new BigDecimal(priceStr);
+                // Create a unit price entry with quantity = 1
+                String description = "Unit Price";
+                if (!seenDescriptions.contains(description)) {
+                    Info pkgInfo = new Info();
+                    pkgInfo.description = description;
+                    pkgInfo.size = packageSize;
+                    pkgInfo.unitPrice = unitPriceValue;
+                    pkgInfo.quantity = 1;
+                    pkgInfo.unit = "pieces";
+                    packages.add(pkgInfo);
+                    seenDescriptions.add(description);
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse unit price: {}", priceStr);
+            }
+        }
+        
+        // For unit price dosage forms, only extract unit price and skip pack prices
+        if (isUnitPriceDosageForm) {
+            // If we found a unit price, return only that (1 package info only)
+            if (!packages.isEmpty()) {
+                return packages;
+            }
+            // If no unit price found but it's a unit price dosage form, try to extract from pack price
+            Pattern packPattern = Pattern.compile("\\(\\s*(\\d+)\\s*['']?s?\\s*pack:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)\\s*\\)", Pattern.CASE_INSENSITIVE);
+            Matcher packMatcher = packPattern.matcher(cleaned);
+            
+            if (packMatcher.find()) {
+                int quantity = Integer.parseInt(packMatcher.group(1));
+                String priceStr = packMatcher.group(2).replace(",", "");
+                
+                try {
+                    BigDecimal packagePrice = new BigDecimal(priceStr);
+                    BigDecimal calculatedUnitPrice = packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
+                    
+                    Info pkgInfo = new Info();
+                    pkgInfo.description = "Unit Price";
+                    pkgInfo.size = packageSize;
+                    pkgInfo.unitPrice = calculatedUnitPrice;
+                    pkgInfo.quantity = 1;
+                    pkgInfo.unit = "pieces";
+                    packages.add(pkgInfo);
+                    return packages;
+                } catch (Exception e) {
+                    log.warn("Could not parse pack price for unit price dosage form: {}", priceStr);
+                }
+            }
+            return packages;
+        }
+        
+        // Pattern 2: "(N's pack: ৳ X.XX)" - pack entries (only for non-unit-price dosage forms)
+        Pattern packPattern = Pattern.compile("\\(\\s*(\\d+)\\s*['']?s?\\s*pack:\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)\\s*\\)", Pattern.CASE_INSENSITIVE);
+        Matcher packMatcher = packPattern.matcher(cleaned);
+        
+        while (packMatcher.find()) {
+            int quantity = Integer.parseInt(packMatcher.group(1));
+            String priceStr = packMatcher.group(2).replace(",", "");
+            
+            try {
+                BigDecimal packagePrice = new BigDecimal(priceStr);
+                BigDecimal calculatedUnitPrice = unitPriceValue != null ? unitPriceValue : 
+                    packagePrice.divide(new BigDecimal(quantity), 2, RoundingMode.HALF_UP);
+                
+                String description = quantity + "'s pack";
+                if (!seenDescriptions.contains(description)) {
+                    Info pkgInfo = new Info();
+                    pkgInfo.description = description;
+                    pkgInfo.size = packageSize;
+                    pkgInfo.unitPrice = calculatedUnitPrice;
+                    pkgInfo.quantity = quantity;
+                    pkgInfo.unit = "pack";
+                    packages.add(pkgInfo);
+                    seenDescriptions.add(description);
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse pack price: {}", priceStr);
+            }
+        }
+        
+        // Pattern 3: Volume/weight based pricing - "N ml bottle: ৳ X.XX" or "N gm container: ৳ X.XX"
+        // For non-unit-price dosage forms, quantity should be 1 (1 quantity)
+        Pattern volumePattern = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ml|gm|g|mg)\\s+(?:bottle|container|vial|tube|sachet|drop|sachet):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+        Matcher volumeMatcher = volumePattern.matcher(cleaned);
+        
+        while (volumeMatcher.find()) {
+            String quantityStr = volumeMatcher.group(1);
+            String unitType = volumeMatcher.group(2).toLowerCase();
+            String priceStr = volumeMatcher.group(3).replace(",", "");
+            
+            try {
+                BigDecimal packagePrice = new BigDecimal(priceStr);
+                // For non-unit-price dosage forms, quantity is always 1 (1 quantity)
+                // Unit price = package price (since quantity is 1)
+                BigDecimal calculatedUnitPrice = packagePrice;
+                
+                String unit = unitType.equals("ml") ? "ml" : 
+                             (unitType.equals("gm") || unitType.equals("g")) ? "gm" : "mg";
+                String containerType = cleaned.contains("bottle") ? "bottle" :
+                                      cleaned.contains("container") ? "container" :
+                                      cleaned.contains("vial") ? "vial" :
+                                      cleaned.contains("tube") ? "tube" :
+                                      cleaned.contains("sachet") ? "sachet" :
+                                      cleaned.contains("drop") ? "drop" : "unit";
+                
+                String description = quantityStr + " " + unit + " " + containerType;
+                if (!seenDescriptions.contains(description)) {
+                    Info pkgInfo = new Info();
+                    pkgInfo.description = description;
+                    pkgInfo.size = packageSize;
+                    pkgInfo.unitPrice = calculatedUnitPrice;
+                    pkgInfo.quantity = 1; // Always 1 quantity for non-unit-price dosage forms
+                    pkgInfo.unit = unit;
+                    packages.add(pkgInfo);
+                    seenDescriptions.add(description);
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse volume price: {}", priceStr);
+            }
+        }
+        
+        // Pattern 4: Generic pattern for other formats - "description: ৳ X.XX"
+        // Only if we haven't matched anything yet
+        if (packages.isEmpty()) {
+            Pattern genericPattern = Pattern.compile("([^:]+?):\\s*৳\\s*([\\d,]+(?:\\.\\d+)?)");
+            Matcher genericMatcher = genericPattern.matcher(cleaned);
+            
+            while (genericMatcher.find()) {
+                String description = genericMatcher.group(1).trim();
+                String priceStr = genericMatcher.group(2).replace(",", "");
+                
+                // Skip if it's already been processed by other patterns
+                if (description.toLowerCase().contains("unit price") || 
+                    description.toLowerCase().contains("pack") ||
+                    description.matches(".*\\d+\\s*(ml|gm|g|mg).*")) {
+                    continue;
+                }
+                
+                try {
+                    BigDecimal price = new BigDecimal(priceStr);
+                    String unit = extractUnit(description);
+                    
+                    // For non-unit-price dosage forms, quantity is always 1
+                    // For unit-price dosage forms, extract quantity if available, otherwise default to 1
+                    Integer quantity;
+                    if (isUnitPriceDosageForm) {
+                        Integer extractedQuantity = extractQuantity(description);
+                        quantity = extractedQuantity != null ? extractedQuantity : 1;
+                    } else {
+                        // For non-unit-price dosage forms, always set quantity to 1
+                        quantity = 1;
+                    }
+                    
+                    BigDecimal calculatedUnitPrice = quantity > 1 ? 
+                        price.divide(new BigDecimal(quantity), 4, RoundingMode.HALF_UP) : price;
+                    
+                    if (!seenDescriptions.contains(description)) {
+                        Info pkgInfo = new Info();
+                        pkgInfo.description = description;
+                        pkgInfo.size = packageSize;
+                        pkgInfo.unitPrice = calculatedUnitPrice;
+                        pkgInfo.quantity = quantity;
+                        pkgInfo.unit = unit;
+                        packages.add(pkgInfo);
+                        seenDescriptions.add(description);
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not parse generic price from: {}", description);
+                }
+            }
+        }
+        
+        // If still no packages found, create a simple entry
+        if (packages.isEmpty() && !packageContainer.trim().isEmpty() && 
+            !packageContainer.equalsIgnoreCase("Price Unavailable")) {
+            Info pkgInfo = new Info();
+            pkgInfo.description = packageContainer.trim();
+            pkgInfo.size = packageSize;
+            packages.add(pkgInfo);
+        }
+        
+        return packages;
+    }
+    
+    private static Integer extractQuantity(String text) {
+        // Pattern for "N's pack" or "N pack" or "N ml" etc.
+        Pattern pattern = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*['']?s?\\s*(?:pack|tablet|capsule|ml|gm|g|mg|vial|bottle|container)", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = pattern.matcher(text);
+        if (matcher.find()) {
+            try {
+                return (int) Double.parseDouble(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    private static String extractUnit(String text) {
+        String lower = text.toLowerCase();
+        if (lower.contains("ml")) return "ml";
+        if (lower.contains("gm") || (lower.contains("g") && !lower.contains("mg"))) return "gm";
+        if (lower.contains("mg")) return "mg";
+        if (lower.contains("pack")) return "pack";
+        if (lower.contains("tablet")) return "tablets";
+        if (lower.contains("capsule")) return "capsules";
+        if (lower.contains("vial")) return "vial";
+        if (lower.contains("bottle")) return "bottle";
+        if (lower.contains("container")) return "container";
+        return "pieces";
+    }
+    
+    private static class Info {
+        String description;
+        String size;
+        BigDecimal unitPrice;
+        Integer quantity;
+        String unit;
+    }
+}
@@ -0,0 +1,268 @@
+package com.heal.io.service;
+
+import com.heal.io.config.ImportProperties;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Medicine CSV imports against the test schema.
+ */
+@DatabaseTest
+class MedicineCsvImportServiceTest {
+
+    // Every product with its dimension names and packages, keyed by brand id rather than by generated ids
+    private static final String CATALOG_SQL =
+            "SELECT p.brand_id || '|' || p.name || '|' || COALESCE(p.slug, '') || '|' || COALESCE(p.strength, '') " +
+            "|| '|' || COALESCE(p.import_hash, '') || '|' || p.is_active || '|' || COALESCE(mt.name, '') " +
+            "|| '|' || COALESCE(m.name, '') || '|' || COALESCE(d.name, '') || '|' || COALESCE(g.name, '') || '|' || " +
+            "COALESCE((SELECT string_agg(COALESCE(pp.package_description, '') || ':' || COALESCE(pp.package_size, '') " +
+            "|| ':' || COALESCE(pp.unit_price::text, '') || ':' || COALESCE(pp.quantity_per_package::text, '') " +
+            "|| ':' || COALESCE(pp.unit_of_measure, '') || ':' || COALESCE(pp.is_default::text, '') " +
+            "|| ':' || pp.is_active, ';' ORDER BY pp.package_description, pp.unit_price, pp.is_default, pp.is_active) " +
+            "FROM product_package pp WHERE pp.product_id = p.id), '') " +
+            "FROM product p LEFT JOIN medicine_type mt ON mt.id = p.medicine_type_id " +
+            "LEFT JOIN manufacturer m ON m.id = p.manufacturer_id LEFT JOIN dosage_form d ON d.id = p.dosage_form_id " +
+            "LEFT JOIN generic g ON g.id = p.generic_id ORDER BY p.brand_id";
+
+    private static final List<String> DIMENSIONS = List.of("medicine_type", "manufacturer", "dosage_form", "generic");
+
+    private static final String HEADER = "brand id,brand name,type,slug,dosage form,generic,strength,manufacturer," +
+            "package container,Package Size";
+    private static final String VIALS = "500 mg vial: ৳ 28.43,(5's pack: ৳ 142.15),";
+
+    @Autowired
+    private MedicineCsvImportService importService;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void parallelImportEqualsASequentialOne() throws IOException {
+        byte[] sample = medicines(3000);
+
+        MedicineCsvImportService.ImportResult sequential = importWith(1, sample);
+        List<String> sequentialCatalog = catalog();
+        Map<String, List<String>> sequentialDimensions = dimensions();
+        stock.clear();
+
+        MedicineCsvImportService.ImportResult parallel = importWith(4, sample);
+
+        assertThat(sequential.isSuccess()).isTrue();
+        assertThat(parallel.isSuccess()).isTrue();
+        assertThat(parallel.getInserted()).isEqualTo(sequential.getInserted()).isPositive();
+        assertThat(parallel.getSkippedCount()).isEqualTo(sequential.getSkippedCount());
+        assertThat(catalog()).hasSize(sequentialCatalog.size()).containsExactlyElementsOf(sequentialCatalog);
+        assertThat(dimensions()).isEqualTo(sequentialDimensions);
+    }
+
+    @Test
+    void incrementalImportSkipsUnchangedRowsAndUpdatesChangedOnes() {
+        MedicineCsvImportService.ImportResult first = importIncremental(
+                row(9001, "Zimport A", "500 mg", VIALS), row(9002, "Zimport B", "250 mg", VIALS), row(9003, "Zimport C", "1 g", VIALS));
+        assertThat(first.getInserted()).isEqualTo(3);
+        String hash = importHash(9002);
+
+        MedicineCsvImportService.ImportResult second = importIncremental(
+                row(9001, "Zimport A", "500 mg", VIALS), row(9002, "Zimport B", "750 mg", VIALS), row(9003, "Zimport C", "1 g", VIALS));
+
+        assertThat(second.isSuccess()).isTrue();
+        assertThat(second.getInserted()).isZero();
+        assertThat(second.getUpdated()).isEqualTo(1);
+        assertThat(second.getUnchanged()).isEqualTo(2);
+        assertThat(second.getRemoved()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT strength FROM product WHERE brand_id = 9002", String.class))
+                .isEqualTo("750 mg");
+        assertThat(importHash(9002)).isNotEqualTo(hash);
+    }
+
+    @Test
+    void changedPackagesAreReconciledByDescription() {
+        importIncremental(row(9001, "Zimport A", "500 mg", VIALS));
+        Long packId = packageId(9001, "5's pack");
+
+        MedicineCsvImportService.ImportResult second = importIncremental(
+                row(9001, "Zimport A", "500 mg", "1 gm vial: ৳ 40.00,(5's pack: ৳ 200.00),"));
+
+        assertThat(second.getUpdated()).isEqualTo(1);
+        assertThat(second.getPackagesRemoved()).isEqualTo(1);
+        // The listed package keeps its row, the one no longer listed is retired rather than deleted
+        assertThat(packageId(9001, "5's pack")).isEqualTo(packId);
+        assertThat(jdbcTemplate.queryForList("SELECT package_description || ':' || is_active FROM product_package " +
+                        "WHERE product_id = (SELECT id FROM product WHERE brand_id = 9001)", String.class))
+                .containsExactlyInAnyOrder("5's pack:true", "500 mg vial:false", "1 gm vial:true");
+    }
+
+    @Test
+    void productsMissingFromTheFileAreDeactivatedAndComeBackWhenListedAgain() {
+        importIncremental(row(9001, "Zimport A", "500 mg", VIALS), row(9002, "Zimport B", "250 mg", VIALS));
+
+        MedicineCsvImportService.ImportResult second = importIncremental(
+                row(9001, "Zimport A", "500 mg", VIALS), row(9004, "Zimport D", "5 mg", VIALS));
+
+        assertThat(second.getInserted()).isEqualTo(1);
+        assertThat(second.getUnchanged()).isEqualTo(1);
+        assertThat(second.getRemoved()).isEqualTo(1);
+        assertThat(active(9002)).isFalse();
+
+        MedicineCsvImportService.ImportResult third = importIncremental(
+                row(9001, "Zimport A", "500 mg", VIALS), row(9002, "Zimport B", "250 mg", VIALS),
+                row(9004, "Zimport D", "5 mg", VIALS));
+
+        // Its hash was cleared, so the unchanged row is written again
+        assertThat(third.getUpdated()).isEqualTo(1);
+        assertThat(third.getRemoved()).isZero();
+        assertThat(active(9002)).isTrue();
+    }
+
+    @Test
+    void nothingIsDeactivatedWhenRowsWereSkipped() {
+        importIncremental(row(9001, "Zimport A", "500 mg", VIALS), row(9002, "Zimport B", "250 mg", VIALS));
+
+        // The unreadable row may be one of the missing products
+        MedicineCsvImportService.ImportResult second = importIncremental(
+                row(9001, "Zimport A", "500 mg", VIALS), "not-a-number,Zimport X,allopathic,x,Tablet,G,1 mg,M,,");
+
+        assertThat(second.isSuccess()).isTrue();
+        assertThat(second.getSkippedCount()).isEqualTo(1);
+        assertThat(second.getRemoved()).isZero();
+        assertThat(second.getMessage()).contains("were not deactivated");
+        assertThat(active(9002)).isTrue();
+    }
+
+    @Test
+    void validationReportsBadRowsAndWritesNothing(@TempDir Path dir) throws IOException {
+        importIncremental(row(9001, "Zimport A", "500 mg", VIALS));
+        Map<String, Integer> before = tableCounts();
+
+        Path reportFile = dir.resolve("report.csv");
+        MedicineCsvImportService.ImportResult result;
+        try (ImportReport report = ImportReport.to(reportFile)) {
+            result = importService.importMedicines(csv(
+                    "9101,Zvalid A,herbal,zvalid-a,Zvalid Drops,Zvalid Generic,1 mg,Zvalid Ltd.,\"" + VIALS + "\",",
+                    "9102,,allopathic,zvalid-b,Tablet,Zimport Generic,1 mg,Zimport Laboratories Ltd.,(10's pack: ৳ 55.00),",
+                    "abc,Zvalid C,allopathic,zvalid-c,Tablet,Zimport Generic,1 mg,Zimport Laboratories Ltd.,(10's pack: ৳ 55.00),",
+                    "9103,Zvalid D",
+                    "9101,Zvalid A again,allopathic,zvalid-a,Tablet,Zimport Generic,1 mg,Zimport Laboratories Ltd.,(10's pack: ৳ 55.00),",
+                    "9104,Zvalid E,allopathic,zvalid-e,Tablet,,5 mg,,,",
+                    "9105,Zvalid F,allopathic,zvalid-f,Tablet,Zimport Generic," + "9".repeat(201) + ",Zimport Laboratories Ltd.,(10's pack: ৳ 55.00),"),
+                    ImportMode.VALIDATE, ImportProgressListener.NONE, report);
+            assertThat(report.getErrors()).isEqualTo(4);
+            assertThat(report.getWarnings()).isEqualTo(4);
+        }
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValid()).isEqualTo(2);
+        assertThat(result.getSkippedCount()).isEqualTo(4);
+        assertThat(Files.readAllLines(reportFile)).containsExactly(
+                "line,brand_id,level,message",
+                "3,9102,ERROR,Missing brand name",
+                "4,abc,ERROR,Invalid brand id 'abc'",
+                "5,,ERROR,Insufficient columns",
+                "6,9101,WARNING,\"Duplicate brand id, row ignored\"",
+                "7,9104,WARNING,Missing generic",
+                "7,9104,WARNING,Missing manufacturer",
+                "7,9104,WARNING,No package information",
+                "8,9105,ERROR,Strength is longer than 200 characters");
+        assertThat(tableCounts()).isEqualTo(before);
+    }
+
+    private Map<String, Integer> tableCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String table : Stream.concat(Stream.of("product", "product_package", "product_category"), DIMENSIONS.stream()).toList()) {
+            counts.put(table, jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class));
+        }
+        return counts;
+    }
+
+    private MedicineCsvImportService.ImportResult importIncremental(String... rows) {
+        return importService.importMedicines(csv(rows), ImportMode.INCREMENTAL,
+                ImportProgressListener.NONE, ImportReport.discard());
+    }
+
+    private static ByteArrayInputStream csv(String... rows) {
+        return new ByteArrayInputStream((HEADER + "\n" + String.join("\n", rows) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String row(long brandId, String name, String strength, String packages) {
+        return brandId + "," + name + ",allopathic," + name.toLowerCase().replace(' ', '-') +
+                ",Powder for Injection,Zimport Generic," + strength + ",Zimport Laboratories Ltd.,\"" + packages + "\",";
+    }
+
+    private String importHash(long brandId) {
+        return jdbcTemplate.queryForObject("SELECT import_hash FROM product WHERE brand_id = ?", String.class, brandId);
+    }
+
+    private boolean active(long brandId) {
+        return jdbcTemplate.queryForObject("SELECT is_active FROM product WHERE brand_id = ?", Boolean.class, brandId);
+    }
+
+    private Long packageId(long brandId, String description) {
+        return jdbcTemplate.queryForObject("SELECT pp.id FROM product_package pp JOIN product p ON p.id = pp.product_id " +
+                "WHERE p.brand_id = ? AND pp.package_description = ? AND pp.is_active = true", Long.class, brandId, description);
+    }
+
+    private MedicineCsvImportService.ImportResult importWith(int parallelism, byte[] csv) {
+        int batchSize = importProperties.getBatchSize();
+        int previousParallelism = importProperties.getParallelism();
+        // Small chunks, so the parallel run has many of them in flight
+        importProperties.setBatchSize(100);
+        importProperties.setParallelism(parallelism);
+        try {
+            return importService.importMedicines(new ByteArrayInputStream(csv), ImportMode.FULL,
+                    ImportProgressListener.NONE, ImportReport.discard());
+        } finally {
+            importProperties.setBatchSize(batchSize);
+            importProperties.setParallelism(previousParallelism);
+        }
+    }
+
+    /**
+     * The header and the first {@code rows} lines of the bundled medicine.csv.
+     */
+    private static byte[] medicines(int rows) throws IOException {
+        try (Stream<String> lines = Files.lines(Path.of("medicine.csv"), StandardCharsets.UTF_8)) {
+            return lines.limit(rows + 1L).collect(Collectors.joining("\n", "", "\n")).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> catalog() {
+        return jdbcTemplate.queryForList(CATALOG_SQL, String.class);
+    }
+
+    private Map<String, List<String>> dimensions() {
+        Map<String, List<String>> names = new LinkedHashMap<>();
+        for (String table : DIMENSIONS) {
+            names.put(table, jdbcTemplate.queryForList("SELECT name FROM " + table + " ORDER BY name", String.class));
+        }
+        return names;
+    }
+}
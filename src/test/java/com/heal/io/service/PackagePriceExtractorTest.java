@@ -0,0 +1,64 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PackagePriceExtractorTest {
+
+    private final PackagePriceExtractor extractor = new PackagePriceExtractor();
+
+    @Test
+    void matchesLegacyParserOnEveryRowOfMedicineCsv() throws IOException {
+        int rows = 0;
+        try (CsvTokenizer csv = new CsvTokenizer(Files.newBufferedReader(Path.of("medicine.csv"), StandardCharsets.UTF_8))) {
+            csv.next(); // header
+            while (csv.next()) {
+                if (csv.getFieldCount() < 9) {
+                    continue;
+                }
+                String container = csv.trimmedField(8);
+                String size = csv.getFieldCount() > 9 ? csv.trimmedField(9) : "";
+                String dosageForm = csv.trimmedField(4);
+
+                assertThat(extractor.extract(container, size, dosageForm))
+                        .as("line %d: %s", csv.getLineNumber(), container)
+                        .isEqualTo(LegacyPackageParser.parse(container, size, dosageForm));
+                rows++;
+            }
+        }
+        assertThat(rows).isGreaterThan(20_000);
+    }
+
+    @Test
+    void derivesUnitPriceFromPackForUnitPriceDosageForms() {
+        List<PackageInfo> packages = extractor.extract("(10's pack: ৳ 55.00)", "", "Tablet");
+
+        assertThat(packages).containsExactly(
+                new PackageInfo("Unit Price", "", new BigDecimal("5.50"), 1, "pieces"));
+    }
+
+    @Test
+    void extractsVolumeAndPackEntries() {
+        List<PackageInfo> packages = extractor.extract("500 mg vial: ৳ 28.43,(5's pack: ৳ 142.15),",
+                "(5's pack: ৳ 142.15)", "Powder for Injection");
+
+        assertThat(packages).containsExactly(
+                new PackageInfo("5's pack", "(5's pack: ৳ 142.15)", new BigDecimal("28.43"), 5, "pack"),
+                new PackageInfo("500 mg vial", "(5's pack: ৳ 142.15)", new BigDecimal("28.43"), 1, "mg"));
+    }
+
+    @Test
+    void keepsUnpricedContainerAsDescription() {
+        assertThat(extractor.extract("Price Unavailable", "", "Syrup")).isEmpty();
+        assertThat(extractor.extract("100 ml bottle", "", "Syrup"))
+                .containsExactly(new PackageInfo("100 ml bottle", "", null, null, null));
+    }
+}
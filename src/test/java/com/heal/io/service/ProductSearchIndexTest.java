@@ -0,0 +1,114 @@
+package com.heal.io.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(null);
+
+    @BeforeEach
+    void setUp() {
+        index.replaceAll(List.of(
+                entry(1L, "Napa", "Paracetamol", "Beximco Pharmaceuticals Ltd."),
+                entry(2L, "Napa Extra", "Paracetamol + Caffeine", "Beximco Pharmaceuticals Ltd."),
+                entry(3L, "Ace", "Paracetamol", "Square Pharmaceuticals PLC"),
+                entry(4L, "Moxacil", "Amoxicillin Trihydrate", "Square Pharmaceuticals PLC")));
+    }
+
+    @Test
+    void isColdUntilBuilt() {
+        ProductSearchIndex cold = new ProductSearchIndex(null);
+
+        assertThat(cold.isReady()).isFalse();
+        assertThat(cold.search("napa", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksBrandMatchesBeforeGenericAndManufacturerMatches() {
+        assertThat(ids(index.search("Napa", 10))).containsExactly(1L, 2L);
+        assertThat(ids(index.search("para", 10))).containsExactly(3L, 1L, 2L);
+        assertThat(ids(index.search("square", 10))).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void requiresEveryTermToMatch() {
+        assertThat(ids(index.search("napa ext", 10))).containsExactly(2L);
+        assertThat(ids(index.search("paracetamol caff", 10))).containsExactly(2L);
+    }
+
+    @Test
+    void fallsBackToSubstringMatchesForLongerQueries() {
+        assertThat(ids(index.search("cillin", 10))).containsExactly(4L);
+        assertThat(index.search("ci", 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildReplacesPreviousEntries() {
+        index.replaceAll(List.of(entry(5L, "Napa One", "Paracetamol", "Beximco")));
+
+        assertThat(ids(index.search("napa", 10))).containsExactly(5L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshDuringRebuildIsNotLost() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        JdbcTemplate database = new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+                // The full read started before the product was renamed
+                reading.countDown();
+                await(saved);
+                return (List<T>) List.of(entry(1L, "Napa", "Paracetamol", "Beximco Pharmaceuticals Ltd."));
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                return (List<T>) List.of(entry(1L, "Napa Rapid", "Paracetamol", "Beximco Pharmaceuticals Ltd."));
+            }
+        };
+        ProductSearchIndex rebuilding = new ProductSearchIndex(database);
+        rebuilding.replaceAll(List.of(entry(1L, "Napa", "Paracetamol", "Beximco Pharmaceuticals Ltd.")));
+
+        Thread rebuild = Thread.ofVirtual().start(rebuilding::rebuild);
+        await(reading);
+        rebuilding.refresh(1L);
+        saved.countDown();
+        rebuild.join();
+
+        assertThat(rebuilding.search("rapid", 10)).extracting(ProductSearchIndex.Entry::name).containsExactly("Napa Rapid");
+    }
+
+    @Test
+    void limitsResults() {
+        assertThat(index.search("pharmaceuticals", 2)).hasSize(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ProductSearchIndex.Entry entry(Long id, String name, String generic, String manufacturer) {
+        return new ProductSearchIndex.Entry(id, name, "Medicine", manufacturer, generic, "Tablet", "500 mg");
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.Entry> entries) {
+        return entries.stream().map(ProductSearchIndex.Entry::id).toList();
+    }
+}
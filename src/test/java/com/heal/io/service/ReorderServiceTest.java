@@ -0,0 +1,128 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Low stock and reorder suggestions against the test schema.
+ */
+@DatabaseTest
+class ReorderServiceTest {
+
+    @Autowired
+    private ReorderService reorderService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void createStock() {
+        product = stock.product("Reorder");
+        // Two batches below the reorder level of 10 that together are above it
+        stock.receive(product, LocalDate.now().plusMonths(6), 6, "1");
+        stock.receive(product, LocalDate.now().plusYears(1), 6, "1");
+    }
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void stockIsLowWhenAllBatchesTogetherReachTheReorderLevel() {
+        assertThat(item()).isNull();
+        long before = reorderService.countLowStock();
+
+        checkout(3);
+
+        ReorderService.LowStockItem item = item();
+        assertThat(item).isNotNull();
+        assertThat(item.available()).isEqualTo(9);
+        assertThat(item.reorderLevel()).isEqualTo(10);
+        // Up to twice the reorder level, as no maximum stock level is set
+        assertThat(item.suggestedQuantity()).isEqualTo(11);
+        assertThat(reorderService.countLowStock()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void itemsWithoutSupplierAreSuggestedInAnOrderOfTheirOwn() {
+        checkout(3);
+
+        assertThat(reorderService.suggestPurchaseOrders())
+                .filteredOn(order -> order.supplierId() == null)
+                .singleElement()
+                .satisfies(order -> assertThat(order.items())
+                        .anySatisfy(item -> assertThat(item.productId()).isEqualTo(product.getId())));
+    }
+
+    @Test
+    void soldOutBatchesLeaveTheCandidatesWhenTheProductIsRestocked() {
+        Product restocked = stock.product("Restocked");
+        int batches = 200;
+        for (int i = 0; i < batches; i++) {
+            stock.receive(restocked, LocalDate.now().plusDays(30 + i), 1, "1");
+        }
+        stock.checkout(restocked, batches, BigDecimal.TEN);
+
+        // All sold out: every batch is a candidate and the product is listed with nothing left
+        assertThat(flagged(restocked)).isEqualTo(batches);
+        assertThat(item(restocked)).isNotNull().satisfies(item -> assertThat(item.available()).isZero());
+
+        stock.receive(restocked, LocalDate.now().plusYears(2), 100, "1");
+
+        assertThat(flagged(restocked)).isZero();
+        assertThat(item(restocked)).isNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM inventory WHERE product_id = ? AND quantity = 0 AND is_active = false",
+                Integer.class, restocked.getId())).isEqualTo(batches);
+    }
+
+    @Test
+    void aRestockedBatchThatSellsOutKeepsTheProductListed() {
+        Product restocked = stock.product("Restocked");
+        stock.receive(restocked, LocalDate.now().plusDays(30), 5, "1");
+        stock.checkout(restocked, 5, BigDecimal.TEN);
+        stock.receive(restocked, LocalDate.now().plusDays(60), 5, "1");
+        stock.checkout(restocked, 5, BigDecimal.TEN);
+
+        assertThat(flagged(restocked)).isEqualTo(1);
+        assertThat(item(restocked)).isNotNull().satisfies(item -> assertThat(item.available()).isZero());
+    }
+
+    // Rows of the product in idx_inventory_low_stock
+    private int flagged(Product product) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM inventory WHERE product_id = ? " +
+                "AND is_active = true AND available_quantity <= reorder_level", Integer.class, product.getId());
+    }
+
+    private ReorderService.LowStockItem item() {
+        return item(product);
+    }
+
+    private ReorderService.LowStockItem item(Product product) {
+        return reorderService.lowStock().stream()
+                .filter(item -> item.productId().equals(product.getId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void checkout(int quantity) {
+        stock.checkout(product, quantity, BigDecimal.TEN);
+    }
+}
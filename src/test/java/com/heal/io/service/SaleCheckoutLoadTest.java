@@ -0,0 +1,168 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.Sale;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Concurrent checkouts against the test schema.
+ */
+@DatabaseTest
+@Slf4j
+class SaleCheckoutLoadTest {
+
+    private static final int COUNTERS = 16;
+    private static final LocalDate EARLY = LocalDate.now().plusMonths(3);
+    private static final LocalDate LATE = LocalDate.now().plusYears(2);
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Product> products;
+    private final Queue<Long> saleIds = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void createProducts() {
+        products = stock.products("Checkout load", 20);
+    }
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void sellsEarliestExpiryFirstAndComputesProfit() {
+        Product product = products.get(0);
+        receive(product, LATE, 100, "4.00");
+        receive(product, EARLY, 10, "3.00");
+
+        Sale sale = checkout(product, 15, new BigDecimal("5.00"));
+        saleIds.add(sale.getId());
+
+        assertThat(sale.getTotalAmount()).isEqualByComparingTo("75.00");
+        assertThat(available(product, EARLY)).isZero();
+        assertThat(available(product, LATE)).isEqualTo(95);
+        // 10 x (5 - 3) + 5 x (5 - 4)
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(profit_amount) FROM sale_item WHERE sale_id = ?",
+                BigDecimal.class, sale.getId())).isEqualByComparingTo("25.00");
+    }
+
+    @Test
+    void rejectsSalesBeyondTheStockWithoutWritingThem() {
+        Product product = products.get(0);
+        receive(product, EARLY, 5, "1.00");
+
+        assertThatThrownBy(() -> checkout(product, 6, BigDecimal.ONE)).isInstanceOf(IllegalStateException.class);
+        assertThat(available(product, EARLY)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentCountersNeverOversellOneProduct() throws Exception {
+        Product product = products.get(0);
+        receive(product, EARLY, 300, "1.00");
+        receive(product, LATE, 700, "1.00");
+
+        AtomicInteger rejected = new AtomicInteger();
+        runCounters(40, counter -> {
+            try {
+                saleIds.add(checkout(product, 2, BigDecimal.TEN).getId());
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(saleIds).hasSize(500);
+        assertThat(rejected.get()).isEqualTo(COUNTERS * 40 - 500);
+        assertThat(available(product, EARLY)).isZero();
+        assertThat(available(product, LATE)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(quantity) FROM sale_item WHERE product_id = ?",
+                Long.class, product.getId())).isEqualTo(1000L);
+    }
+
+    // Throughput is measured by CheckoutThroughputBenchmark; this checks the counters' result only
+    @Test
+    void concurrentCheckoutsAcrossProductsAllComplete() throws Exception {
+        for (Product product : products) {
+            receive(product, LATE, 10_000, "1.00");
+        }
+        int checkoutsPerCounter = 100;
+        AtomicInteger sold = new AtomicInteger();
+
+        long started = System.nanoTime();
+        runCounters(checkoutsPerCounter, counter -> {
+            Product product = products.get(ThreadLocalRandom.current().nextInt(products.size()));
+            int quantity = 1 + ThreadLocalRandom.current().nextInt(3);
+            saleIds.add(checkout(product, quantity, BigDecimal.TEN).getId());
+            sold.addAndGet(quantity);
+        });
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("{} checkouts from {} counters in {} s: {} checkouts/s",
+                COUNTERS * checkoutsPerCounter, COUNTERS, String.format("%.2f", seconds),
+                String.format("%.0f", COUNTERS * checkoutsPerCounter / seconds));
+
+        assertThat(saleIds).hasSize(COUNTERS * checkoutsPerCounter);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sale", Integer.class))
+                .isEqualTo(COUNTERS * checkoutsPerCounter);
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(quantity) FROM sale_item", Long.class))
+                .isEqualTo(sold.get());
+        // Every unit sold left the inventory exactly once
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(available_quantity) FROM inventory", Long.class))
+                .isEqualTo(products.size() * 10_000L - sold.get());
+    }
+
+    private void runCounters(int checkoutsPerCounter, IntConsumer counter) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(COUNTERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < COUNTERS; c++) {
+            int number = c;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < checkoutsPerCounter; i++) {
+                    counter.accept(number);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private void receive(Product product, LocalDate expiry, int quantity, String unitCost) {
+        stock.receive(product, expiry, quantity, unitCost);
+    }
+
+    private Sale checkout(Product product, int quantity, BigDecimal unitPrice) {
+        return stock.checkout(product, quantity, unitPrice);
+    }
+
+    private int available(Product product, LocalDate expiry) {
+        return stock.available(product, expiry);
+    }
+}
@@ -0,0 +1,91 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sales rollups against the test schema.
+ */
+@DatabaseTest
+class SalesRollupServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final String PAYMENT_METHOD = "CASH";
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void createStock() {
+        product = stock.product("Rollup");
+        stock.receive(product, TODAY.plusYears(1), 100, "2.00");
+    }
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void checkoutsAddTheirSalesToTheRollups() {
+        checkout(3, "5.00");
+        checkout(2, "6.00");
+
+        assertThat(productRollup()).containsEntry("units", 5L);
+        assertThat((BigDecimal) productRollup().get("revenue")).isEqualByComparingTo("27.00");
+        // 3 x (5 - 2) + 2 x (6 - 2)
+        assertThat((BigDecimal) productRollup().get("profit")).isEqualByComparingTo("17.00");
+        assertThat(paymentRollup()).containsEntry("sale_count", 2L).containsEntry("units", 5L);
+        assertThat((BigDecimal) paymentRollup().get("revenue")).isEqualByComparingTo("27.00");
+    }
+
+    @Test
+    void rebuildReproducesTheIncrementalRollups() {
+        checkout(4, "3.50");
+        checkout(1, "9.00");
+        Map<String, Object> product = productRollup();
+        Map<String, Object> payment = paymentRollup();
+
+        salesRollupService.rebuild(TODAY, TODAY);
+
+        assertThat(productRollup()).isEqualTo(product);
+        assertThat(paymentRollup()).isEqualTo(payment);
+        assertThat(salesRollupService.totals(TODAY, TODAY, SalesRollupService.Granularity.MONTH))
+                .singleElement()
+                .satisfies(total -> assertThat(total.period()).isEqualTo(TODAY.withDayOfMonth(1)));
+    }
+
+    private void checkout(int quantity, String unitPrice) {
+        stock.checkout(product, quantity, new BigDecimal(unitPrice), PAYMENT_METHOD, null);
+    }
+
+    private Map<String, Object> productRollup() {
+        return jdbcTemplate.queryForMap("SELECT units, revenue, profit FROM sales_rollup_product " +
+                "WHERE sale_day = ? AND product_id = ?", TODAY, product.getId());
+    }
+
+    private Map<String, Object> paymentRollup() {
+        return jdbcTemplate.queryForMap("SELECT sale_count, units, revenue, profit FROM sales_rollup_payment " +
+                "WHERE sale_day = ? AND payment_method = ?", TODAY, PAYMENT_METHOD);
+    }
+}
@@ -0,0 +1,116 @@
+package com.heal.io.service;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.StockIn;
+import com.heal.io.support.DatabaseTest;
+import com.heal.io.support.StockFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the test schema. Receipts commit, so the timing includes the commit and a failure
+ * shows whether the whole document was rolled back.
+ */
+@DatabaseTest
+class StockInServiceTest {
+
+    private static final int LINES = 500;
+    private static final LocalDate EXPIRY = LocalDate.of(2030, 12, 31);
+
+    @Autowired
+    private StockInService stockInService;
+
+    @Autowired
+    private StockFixture stock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void createProducts() {
+        products = stock.products("Stock in test", LINES);
+    }
+
+    @AfterEach
+    void clear() {
+        stock.clear();
+    }
+
+    @Test
+    void receivesALargeInvoiceQuickly() {
+        List<StockInService.Line> lines = new ArrayList<>();
+        for (Product product : products) {
+            lines.add(new StockInService.Line(product.getId(), null, 10, new BigDecimal("2.50"), null, EXPIRY));
+        }
+
+        long started = System.nanoTime();
+        StockIn saved = stockInService.receive(stockIn("LARGE"), null, null, lines);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+        assertThat(saved.getTotalAmount()).isEqualByComparingTo("12500.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM stock_in_item WHERE stock_in_id = ?",
+                Long.class, saved.getId())).isEqualTo(LINES);
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(quantity) FROM inventory WHERE product_id = ANY (?)",
+                Long.class, (Object) products.stream().map(Product::getId).toArray(Long[]::new))).isEqualTo(LINES * 10L);
+    }
+
+    @Test
+    void rejectsUnknownProductsWithoutWritingAnything() {
+        List<StockInService.Line> lines = List.of(
+                new StockInService.Line(products.get(0).getId(), null, 1, BigDecimal.ONE, null, null),
+                new StockInService.Line(-1L, null, 1, BigDecimal.ONE, null, null));
+
+        assertThatThrownBy(() -> stockInService.receive(stockIn("UNKNOWN"), null, null, lines))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("-1");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM inventory WHERE product_id = ?",
+                Long.class, products.get(0).getId())).isZero();
+    }
+
+    @Test
+    void failureInTheLedgerRollsBackTheWholeDocument() {
+        Product full = products.get(1);
+        stock.receive(full, EXPIRY, 1, "1.00");
+        // The next receipt of this batch overflows the integer quantity in the ledger upsert, after
+        // the header and the items have been written
+        jdbcTemplate.update("UPDATE inventory SET quantity = ?, available_quantity = ? WHERE product_id = ?",
+                Integer.MAX_VALUE, Integer.MAX_VALUE, full.getId());
+        List<StockInService.Line> lines = List.of(
+                new StockInService.Line(products.get(0).getId(), null, 5, BigDecimal.ONE, null, EXPIRY),
+                new StockInService.Line(full.getId(), null, 5, BigDecimal.ONE, null, EXPIRY));
+
+        assertThatThrownBy(() -> stockInService.receive(stockIn("OVERFLOW"), null, null, lines))
+                .isInstanceOf(DataAccessException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM stock_in WHERE stock_in_number = ?",
+                Long.class, "TEST-OVERFLOW")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM stock_in_item WHERE product_id = ANY (?)",
+                Long.class, (Object) new Long[]{products.get(0).getId(), full.getId()})).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM inventory WHERE product_id = ?",
+                Long.class, products.get(0).getId())).isZero();
+        assertThat(stock.available(full, EXPIRY)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    private static StockIn stockIn(String number) {
+        StockIn stockIn = new StockIn();
+        stockIn.setStockInNumber("TEST-" + number);
+        stockIn.setStockInDate(LocalDate.now());
+        return stockIn;
+    }
+}
@@ -0,0 +1,32 @@
+package com.heal.io.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A Spring Boot test against PostgreSQL in the {@value StockFixture#TEST_SCHEMA} schema set up by
+ * application-test.properties, with the {@link StockFixture} for its data. Needs the configured
+ * PostgreSQL server; the admin user is created there by the DataInitializer on the first run.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(StockFixture.class)
+public @interface DatabaseTest {
+
+    /**
+     * Properties added to the test's environment, as with {@link SpringBootTest#properties()}.
+     */
+    @AliasFor(annotation = SpringBootTest.class, attribute = "properties")
+    String[] properties() default {};
+}
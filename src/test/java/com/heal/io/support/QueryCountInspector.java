@@ -0,0 +1,30 @@
+package com.heal.io.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares, so tests can assert that an endpoint does not load
+ * associations row by row. Register it with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}; Hibernate creates
+ * the instance itself, hence the static counter.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+}
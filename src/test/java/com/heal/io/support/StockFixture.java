@@ -0,0 +1,102 @@
+package com.heal.io.support;
+
+import com.heal.io.entity.Product;
+import com.heal.io.entity.ProductCategory;
+import com.heal.io.entity.Sale;
+import com.heal.io.repository.ProductCategoryRepository;
+import com.heal.io.repository.ProductRepository;
+import com.heal.io.service.InventoryLedgerService;
+import com.heal.io.service.SaleCheckoutService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Products, stock and sales for {@link DatabaseTest}s. Tests that commit call {@link #clear()}
+ * afterwards, which empties the product, stock, sales and rollup tables of the test schema.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class StockFixture {
+
+    public static final String TEST_SCHEMA = "healio_test";
+
+    // Everything that references products goes with them: packages, inventory, movements, sale and
+    // stock-in items; the dimensions take their supplier and drug class links
+    private static final String CLEAR_SQL = "TRUNCATE TABLE product, sale, stock_in, " +
+            "sales_rollup_product, sales_rollup_user, sales_rollup_payment, " +
+            "medicine_type, manufacturer, dosage_form, generic CASCADE";
+
+    private final ProductRepository productRepository;
+    private final ProductCategoryRepository productCategoryRepository;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final SaleCheckoutService saleCheckoutService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public Product product(String name) {
+        return productRepository.save(Product.builder().name(name).productCategory(medicine()).build());
+    }
+
+    public List<Product> products(String name, int count) {
+        ProductCategory category = medicine();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(Product.builder().name(name + " " + i).productCategory(category).build());
+        }
+        return productRepository.saveAll(products);
+    }
+
+    /**
+     * Receives {@code quantity} units of {@code product} expiring on {@code expiry}, without package or batch.
+     */
+    public void receive(Product product, LocalDate expiry, int quantity, String unitCost) {
+        inventoryLedgerService.receive("TEST-" + product.getId(), List.of(new InventoryLedgerService.Receipt(
+                product.getId(), null, null, expiry, quantity, new BigDecimal(unitCost), null, null)));
+    }
+
+    public Sale checkout(Product product, int quantity, BigDecimal unitPrice) {
+        return checkout(product, quantity, unitPrice, "CASH", null);
+    }
+
+    /**
+     * Sells {@code quantity} units of {@code product} as the admin user.
+     *
+     * @param cartId cart whose reservations the sale takes over, may be null
+     */
+    public Sale checkout(Product product, int quantity, BigDecimal unitPrice, String paymentMethod, String cartId) {
+        return saleCheckoutService.checkout(new SaleCheckoutService.CheckoutRequest(null, null, null,
+                paymentMethod, null, null, null, null, null,
+                List.of(new SaleCheckoutService.Item(product.getId(), null, quantity, unitPrice, null)), cartId), "admin");
+    }
+
+    /**
+     * Available units of the batch of {@code product} expiring on {@code expiry}.
+     */
+    public int available(Product product, LocalDate expiry) {
+        return jdbcTemplate.queryForObject("SELECT available_quantity FROM inventory WHERE product_id = ? AND expiry_date = ?",
+                Integer.class, product.getId(), expiry);
+    }
+
+    /**
+     * Removes all products with their stock and sales, the medicine types, manufacturers, dosage
+     * forms and generics they reference, and all sales rollups. Refuses to run outside the test
+     * schema, so a misconfigured test cannot empty the application's tables.
+     */
+    public void clear() {
+        String schema = jdbcTemplate.queryForObject("SELECT current_schema()", String.class);
+        if (!TEST_SCHEMA.equals(schema)) {
+            throw new IllegalStateException("Refusing to clear schema " + schema + ", tests must run in " + TEST_SCHEMA);
+        }
+        jdbcTemplate.execute(CLEAR_SQL);
+    }
+
+    private ProductCategory medicine() {
+        return productCategoryRepository.findByName("Medicine")
+                .orElseGet(() -> productCategoryRepository.save(ProductCategory.builder().name("Medicine").build()));
+    }
+}
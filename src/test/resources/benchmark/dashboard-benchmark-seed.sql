@@ -0,0 +1,67 @@
+-- Seed data for DashboardQueryBenchmark: 5M sales spread over three years, with the product,
+-- inventory and customer tables the other tiles count, in their own schema so the application
+-- tables are left alone. Takes a few minutes; the benchmark only runs it once.
+CREATE SCHEMA IF NOT EXISTS dashboard_benchmark;
+
+CREATE TABLE dashboard_benchmark.sale (
+    id bigserial PRIMARY KEY,
+    sale_number varchar(50) NOT NULL,
+    sale_date timestamp NOT NULL,
+    customer_id bigint,
+    total_amount numeric(10, 2) NOT NULL,
+    sale_status varchar(20) NOT NULL
+);
+
+CREATE TABLE dashboard_benchmark.product (
+    id bigserial PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    is_active boolean NOT NULL DEFAULT true
+);
+
+CREATE TABLE dashboard_benchmark.inventory (
+    id bigserial PRIMARY KEY,
+    product_id bigint NOT NULL,
+    product_package_id bigint,
+    available_quantity integer NOT NULL,
+    reorder_level integer,
+    max_stock_level integer,
+    is_active boolean NOT NULL DEFAULT true
+);
+
+CREATE TABLE dashboard_benchmark.customer (
+    id bigserial PRIMARY KEY,
+    name varchar(250) NOT NULL,
+    is_active boolean NOT NULL DEFAULT true
+);
+
+INSERT INTO dashboard_benchmark.sale (sale_number, sale_date, customer_id, total_amount, sale_status)
+SELECT 'SAL-' || i,
+       now()::timestamp - random() * interval '1095 days',
+       CASE WHEN random() < 0.4 THEN 1 + floor(random() * 200000)::int END,
+       round((20 + random() * 2000)::numeric, 2),
+       CASE WHEN random() < 0.97 THEN 'COMPLETED' ELSE 'CANCELLED' END
+FROM generate_series(1, 5000000) i;
+
+INSERT INTO dashboard_benchmark.product (name, is_active)
+SELECT 'Product ' || i, random() > 0.05
+FROM generate_series(1, 100000) i;
+
+INSERT INTO dashboard_benchmark.inventory (product_id, available_quantity, reorder_level, is_active)
+SELECT 1 + floor(random() * 100000)::int, floor(random() * 500)::int, 10, random() > 0.02
+FROM generate_series(1, 300000) i;
+
+INSERT INTO dashboard_benchmark.customer (name, is_active)
+SELECT 'Customer ' || i, random() > 0.03
+FROM generate_series(1, 200000) i;
+
+-- Indexes of the Sale and Inventory entities
+CREATE INDEX idx_bench_sale_date ON dashboard_benchmark.sale (sale_date);
+CREATE INDEX idx_bench_sale_customer ON dashboard_benchmark.sale (customer_id);
+CREATE INDEX idx_bench_inventory_product ON dashboard_benchmark.inventory (product_id);
+CREATE INDEX idx_bench_inventory_available ON dashboard_benchmark.inventory (available_quantity);
+CREATE INDEX idx_bench_inventory_low_stock ON dashboard_benchmark.inventory (product_id, product_package_id)
+    WHERE is_active = true AND available_quantity <= reorder_level;
+ANALYZE dashboard_benchmark.sale;
+ANALYZE dashboard_benchmark.product;
+ANALYZE dashboard_benchmark.inventory;
+ANALYZE dashboard_benchmark.customer;
@@ -0,0 +1,69 @@
+-- Seed data for SearchQueryBenchmark: 1M products and 500k customers in their own schema, so the
+-- application tables are left alone. Names are built from drug-like syllables to give trigram
+-- statistics close to the real catalog. Takes a few minutes; the benchmark only runs it once.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE SCHEMA IF NOT EXISTS search_benchmark;
+
+CREATE TABLE search_benchmark.manufacturer (
+    id bigserial PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    phone varchar(20),
+    email varchar(255),
+    is_active boolean NOT NULL DEFAULT true
+);
+
+CREATE TABLE search_benchmark.generic (
+    id bigserial PRIMARY KEY,
+    name varchar(500) NOT NULL
+);
+
+CREATE TABLE search_benchmark.product (
+    id bigserial PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    manufacturer_id bigint REFERENCES search_benchmark.manufacturer (id),
+    generic_id bigint REFERENCES search_benchmark.generic (id),
+    is_active boolean NOT NULL DEFAULT true
+);
+
+CREATE TABLE search_benchmark.customer (
+    id bigserial PRIMARY KEY,
+    customer_code varchar(50),
+    name varchar(250) NOT NULL,
+    phone varchar(20),
+    is_active boolean NOT NULL DEFAULT true
+);
+
+INSERT INTO search_benchmark.manufacturer (name, phone, email)
+SELECT initcap(s[1 + (i * 7) % 20] || s[1 + (i * 11) % 20] || s[1 + (i * 3) % 20]) || ' Pharmaceuticals Ltd. ' || i,
+       '01' || lpad((i * 7919 % 1000000000)::text, 9, '0'),
+       'contact' || i || '@pharma.example'
+FROM generate_series(1, 500) i,
+     (SELECT ARRAY['na','pa','ce','ta','mol','ox','ami','ci','lin','zo','pra','fen','ro','xi','me','tro','ni','da','sul','fa'] s) syllables;
+
+INSERT INTO search_benchmark.generic (name)
+SELECT initcap(s[1 + (i * 7) % 20] || s[1 + (i * 13) % 20] || s[1 + (i * 17) % 20] || s[1 + i % 20]) || 'ine'
+FROM generate_series(1, 5000) i,
+     (SELECT ARRAY['na','pa','ce','ta','mol','ox','ami','ci','lin','zo','pra','fen','ro','xi','me','tro','ni','da','sul','fa'] s) syllables;
+
+INSERT INTO search_benchmark.product (name, manufacturer_id, generic_id, is_active)
+SELECT initcap(s[1 + floor(random() * 20)::int] || s[1 + floor(random() * 20)::int] || s[1 + floor(random() * 20)::int])
+           || ' ' || (1 + floor(random() * 1000)::int) || ' mg',
+       1 + floor(random() * 500)::int,
+       1 + floor(random() * 5000)::int,
+       random() > 0.05
+FROM generate_series(1, 1000000) i,
+     (SELECT ARRAY['na','pa','ce','ta','mol','ox','ami','ci','lin','zo','pra','fen','ro','xi','me','tro','ni','da','sul','fa'] s) syllables;
+
+INSERT INTO search_benchmark.customer (customer_code, name, phone)
+SELECT 'CUST-' || lpad(i::text, 7, '0'),
+       f[1 + floor(random() * 12)::int] || ' ' || l[1 + floor(random() * 12)::int] || ' ' || i,
+       '01' || lpad((i * 104729 % 1000000000)::text, 9, '0')
+FROM generate_series(1, 500000) i,
+     (SELECT ARRAY['Rahim','Karim','Fatema','Ayesha','Hasan','Nusrat','Tanvir','Sadia','Arif','Mitu','Rafiq','Shirin'] f,
+             ARRAY['Ahmed','Hossain','Islam','Rahman','Khan','Chowdhury','Uddin','Akter','Begum','Sarkar','Miah','Das'] l) names;
+
+CREATE INDEX idx_bench_product_manufacturer ON search_benchmark.product (manufacturer_id);
+CREATE INDEX idx_bench_product_generic ON search_benchmark.product (generic_id);
+CREATE INDEX idx_bench_product_name ON search_benchmark.product (name);
+CREATE INDEX idx_bench_customer_phone ON search_benchmark.customer (phone);
+CREATE INDEX idx_bench_customer_code ON search_benchmark.customer (customer_code);